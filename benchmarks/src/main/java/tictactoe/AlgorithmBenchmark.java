@@ -0,0 +1,75 @@
+package tictactoe;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of a single {@code analyze} call of an {@code AlphaBetaPlayer}
+ * with each {@link AlphaBetaPlayer.Algorithm} on the same positions.
+ * <p>
+ * The number of nodes searched is reported as the {@code nodes} counter,
+ * which is the total of every call; divide it by the {@code searches}
+ * counter for the nodes of one search. {@link AlgorithmComparison} prints
+ * the node counts directly.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AlgorithmBenchmark
+{
+    @Param({BenchmarkPositions.MIDGAME, BenchmarkPositions.SMALL_WIN,
+            BenchmarkPositions.SMALL_DRAW, BenchmarkPositions.LARGE})
+    public String position;
+
+    @Param({"4", "6"})
+    public int depth;
+
+    @Param({"ALPHA_BETA", "PVS", "ASPIRATION", "MTDF"})
+    public AlphaBetaPlayer.Algorithm algorithm;
+
+    private Board board;
+    private AlphaBetaPlayer player;
+
+    /**
+     * Counters reported next to the time of each benchmark.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters
+    {
+        public long nodes;
+        public long searches;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.board = BenchmarkPositions.parse(this.position);
+
+        this.player = new AlphaBetaPlayer(this.depth, 16);
+        this.player.setRandom(new Random(0));
+        this.player.setAlgorithm(this.algorithm);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable()
+    {
+        this.player.getTranspositionTable().clear();
+    }
+
+    @Benchmark
+    public int analyze(Counters counters)
+    {
+        SearchResult result = this.player.analyze(this.board);
+        counters.nodes += result.getNodes();
+        counters.searches++;
+        return result.getMove();
+    }
+}
@@ -0,0 +1,59 @@
+package tictactoe;
+
+import java.util.Random;
+
+/**
+ * Prints the number of nodes searched and the time taken by each
+ * {@link AlphaBetaPlayer.Algorithm} on the positions of
+ * {@link AlgorithmBenchmark}. That every algorithm gives the same value to
+ * every move is checked by the tests of the main build.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar tictactoe.AlgorithmComparison}.
+ * Each search is repeated and the fastest time is printed, so the times are
+ * only a rough guide; use {@link AlgorithmBenchmark} for reliable times.
+ *
+ * @author Todd Taomae
+ */
+public class AlgorithmComparison
+{
+    private static final String[] POSITIONS = {
+        BenchmarkPositions.MIDGAME, BenchmarkPositions.SMALL_WIN,
+        BenchmarkPositions.SMALL_DRAW, BenchmarkPositions.LARGE
+    };
+    private static final int[] DEPTHS = { 4, 6, 8 };
+    private static final int REPETITIONS = 5;
+
+    public static void main(String[] args)
+    {
+        AlphaBetaPlayer.Algorithm[] algorithms = AlphaBetaPlayer.Algorithm.values();
+
+        System.out.printf("%-16s %5s", "position", "depth");
+        for (AlphaBetaPlayer.Algorithm algorithm : algorithms) {
+            System.out.printf(" %22s", algorithm);
+        }
+        System.out.println();
+
+        for (String position : POSITIONS) {
+            Board board = BenchmarkPositions.parse(position);
+            for (int depth : DEPTHS) {
+                System.out.printf("%-16s %5d", position, depth);
+
+                for (AlphaBetaPlayer.Algorithm algorithm : algorithms) {
+                    AlphaBetaPlayer player = new AlphaBetaPlayer(depth, 16);
+                    player.setAlgorithm(algorithm);
+
+                    SearchResult result = null;
+                    long best = Long.MAX_VALUE;
+                    for (int i = 0; i < REPETITIONS; i++) {
+                        player.getTranspositionTable().clear();
+                        player.setRandom(new Random(0));
+                        result = player.analyze(board);
+                        best = Math.min(best, result.getElapsedNanos());
+                    }
+                    System.out.printf(" %11d %7.2f ms", result.getNodes(), best / 1e6);
+                }
+                System.out.println();
+            }
+        }
+    }
+}
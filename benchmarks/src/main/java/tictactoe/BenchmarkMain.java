@@ -0,0 +1,36 @@
+package tictactoe;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled and writes the results as
+ * JSON, to {@code jmh-result.json} unless another file is given with
+ * {@code -rff}.
+ * <p>
+ * Build with {@code mvn package} in the {@code benchmarks} directory and run
+ * with {@code java -jar target/benchmarks.jar}. Any other JMH command line
+ * options may be given, such as a regular expression to select benchmarks.
+ *
+ * @author Todd Taomae
+ */
+public class BenchmarkMain
+{
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException
+    {
+        CommandLineOptions cli = new CommandLineOptions(args);
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .parent(cli)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) {
+            options.result("jmh-result.json");
+        }
+
+        new Runner(options.build()).run();
+    }
+}
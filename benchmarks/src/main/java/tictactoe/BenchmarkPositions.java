@@ -0,0 +1,64 @@
+package tictactoe;
+
+/**
+ * Fixed positions used by the benchmarks. Each position is given as the
+ * sequence of moves played from an empty 3x3 board, separated by commas,
+ * optionally preceded by the shape of another board, such as
+ * {@code 4x4k3:5,6} for two moves on a 4x4 board with three in a row.
+ *
+ * @author Todd Taomae
+ */
+final class BenchmarkPositions
+{
+    /**
+     * Empty 3x4 board with three in a row, searched from the first move. The
+     * empty 3x3 board is answered without a search, and one move into it only
+     * eight moves are left, so it is too small to stand for an opening.
+     */
+    static final String OPENING = "3x4k3:";
+    /** Four moves played, X must block a threat */
+    static final String MIDGAME = "4,0,8,2";
+    /** Six moves played, few moves left to search */
+    static final String NEAR_TERMINAL = "4,0,8,2,1,7";
+    /** Two moves on 4x4 with three in a row, which X wins */
+    static final String SMALL_WIN = "4x4k3:5,6";
+    /** Three moves on 4x4 with four in a row, which is drawn */
+    static final String SMALL_DRAW = "4x4k4:5,10,6";
+    /** Three moves on 5x5 with four in a row, too large to search to the end */
+    static final String LARGE = "5x5k4:12,6,18";
+
+    private BenchmarkPositions() { }
+
+    /**
+     * Returns a new {@code Board} with the specified moves played.
+     *
+     * @param   moves   comma separated moves, optionally preceded by a shape
+     * @return  a board with the moves played
+     */
+    static Board parse(String moves)
+    {
+        Board board = new Board();
+
+        int colon = moves.indexOf(':');
+        if (colon >= 0) {
+            String[] shape = moves.substring(0, colon).split("[xk]");
+            board = new Board(Integer.parseInt(shape[0]), Integer.parseInt(shape[1]),
+                              Integer.parseInt(shape[2]));
+            moves = moves.substring(colon + 1);
+        }
+
+        if (moves.isEmpty()) {
+            return board;
+        }
+
+        try {
+            for (String move : moves.split(",")) {
+                board.play(Integer.parseInt(move.trim()));
+            }
+        } catch (IllegalMoveException e) {
+            throw new IllegalArgumentException("illegal position: " + moves, e);
+        }
+
+        return board;
+    }
+}
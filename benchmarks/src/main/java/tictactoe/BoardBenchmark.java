@@ -0,0 +1,54 @@
+package tictactoe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of individual {@code Board} operations on a fixed midgame position.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark
+{
+    private Board board;
+    private int move;
+
+    @Setup
+    public void setUp()
+    {
+        this.board = BenchmarkPositions.parse(BenchmarkPositions.MIDGAME);
+        int[] moves = new int[this.board.getSize()];
+        this.board.getLegalMoves(moves);
+        this.move = moves[0];
+    }
+
+    /**
+     * Checked move followed by an undo, so that the board is the same for
+     * every invocation.
+     */
+    @Benchmark
+    public int playUndo() throws IllegalMoveException
+    {
+        this.board.play(this.move);
+        return this.board.undo();
+    }
+
+    @Benchmark
+    public Mark getWinner()
+    {
+        return this.board.getWinner();
+    }
+
+    @Benchmark
+    public Object cloneBoard()
+    {
+        return this.board.clone();
+    }
+}
@@ -0,0 +1,79 @@
+package tictactoe;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of a single {@code getMove} call of an {@code MctsPlayer} with a
+ * fixed number of playouts, run on one thread and on several threads sharing
+ * the tree.
+ * <p>
+ * The tree is cleared before each call, so that every call runs its playouts
+ * from a new tree instead of adding to the tree of the previous call. The
+ * number of playouts is reported as the {@code playouts} counter.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MctsBenchmark
+{
+    /** Number of playouts of each call */
+    private static final int PLAYOUTS = 20000;
+
+    @Param({BenchmarkPositions.MIDGAME, BenchmarkPositions.LARGE})
+    public String position;
+
+    @Param({"1", "2", "4"})
+    public int parallelism;
+
+    private Board board;
+    private MctsPlayer player;
+
+    /**
+     * Counters reported next to the time of each benchmark.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters
+    {
+        public long playouts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.board = BenchmarkPositions.parse(this.position);
+
+        this.player = new MctsPlayer(PLAYOUTS);
+        this.player.setRandom(new Random(0));
+        this.player.setParallelism(this.parallelism);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTree()
+    {
+        this.player.clearTree();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        // shuts down the threads of the player
+        this.player.setParallelism(1);
+    }
+
+    @Benchmark
+    public int getMove(Counters counters)
+    {
+        int move = this.player.getMove(this.board);
+        counters.playouts += this.player.getPlayouts();
+        return move;
+    }
+}
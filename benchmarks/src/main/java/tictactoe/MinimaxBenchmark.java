@@ -0,0 +1,51 @@
+package tictactoe;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of a single {@code getMove} call of a {@code MinimaxPlayer} on
+ * the positions of {@link SearchBenchmark}.
+ * <p>
+ * The depths are lower than those of {@code SearchBenchmark}, since without
+ * pruning a search of the opening to depth 9 visits tens of millions of
+ * positions and takes seconds per call. The midgame positions are searched
+ * to the end of the game at depth 6.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MinimaxBenchmark
+{
+    @Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDGAME,
+            BenchmarkPositions.NEAR_TERMINAL})
+    public String position;
+
+    @Param({"2", "4", "6"})
+    public int depth;
+
+    private Board board;
+    private MinimaxPlayer minimax;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.board = BenchmarkPositions.parse(this.position);
+
+        this.minimax = new MinimaxPlayer(this.depth);
+        this.minimax.setRandom(new Random(0));
+    }
+
+    @Benchmark
+    public int minimax()
+    {
+        return this.minimax.getMove(this.board);
+    }
+}
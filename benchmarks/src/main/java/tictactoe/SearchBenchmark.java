@@ -0,0 +1,57 @@
+package tictactoe;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of a single {@code getMove} call of an {@code AlphaBetaPlayer} on
+ * a fixed set of positions and search depths. {@link MinimaxBenchmark} has the
+ * same benchmark of a {@code MinimaxPlayer}.
+ * <p>
+ * The transposition table of the {@code AlphaBetaPlayer} is cleared before
+ * each call, and it does not use a {@link MoveCache}, so that every call does
+ * the full search instead of reading the results of the previous call.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark
+{
+    @Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDGAME,
+            BenchmarkPositions.NEAR_TERMINAL})
+    public String position;
+
+    @Param({"2", "4", "9"})
+    public int depth;
+
+    private Board board;
+    private AlphaBetaPlayer alphaBeta;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.board = BenchmarkPositions.parse(this.position);
+
+        this.alphaBeta = new AlphaBetaPlayer(this.depth, 1);
+        this.alphaBeta.setRandom(new Random(0));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable()
+    {
+        this.alphaBeta.getTranspositionTable().clear();
+    }
+
+    @Benchmark
+    public int alphaBeta()
+    {
+        return this.alphaBeta.getMove(this.board);
+    }
+}
@@ -2,23 +2,149 @@ package tictactoe;
 
 import java.awt.event.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation of the {@code Player} interface which uses a minimax algorithm
  * with alpha-beta pruning.
+ * <p>
+ * The player may optionally be given a {@link TranspositionTable}, which is
+ * kept between calls to {@link #getMove(Board)} so that positions reached
+ * through different move orders, or in later turns, are not searched again.
+ * <p>
+ * By default the search makes use of the symmetries of the board: only one
+ * move from each set of moves leading to symmetric positions is searched, and
+ * symmetric positions share transposition table entries.
+ * <p>
+ * The search is a negamax search in which the values of the moves at the root
+ * are always exact; the {@link Algorithm} selects how the rest of the tree is
+ * searched. The values of the moves do not depend on the algorithm.
+ * <p>
+ * The search is iteratively deepened up to the maximum depth, ordering the
+ * moves at the root by their values from the previous iteration. A time limit
+ * and a node limit may be set, and a search in progress may be stopped from
+ * another thread with {@link #cancel()}. When the search is stopped early, the
+ * move is selected from the deepest iteration that was completed, or is the
+ * first move in search order if the first iteration was not completed.
+ * <p>
+ * If the parallelism is set above one, the search runs on a {@code ForkJoinPool}
+ * using the Young Brothers Wait strategy: at each node far enough from the
+ * leaves, the first move is searched alone and the remaining moves are then
+ * searched in parallel, each starting with the best bound found so far. The
+ * values of the moves at the root are the same as those of the serial search.
+ * <p>
+ * If the player is given a {@link MoveCache}, the values of the moves of each
+ * fully searched position are stored in it, so a position which any player
+ * sharing the cache and the evaluator has already searched to the same depth
+ * is answered without a search.
  *
  * @author Todd Taomae
  */
 public class AlphaBetaPlayer implements Player
 {
-    /** Minimum possible heuristic score */
-    private static final int MIN_SCORE = -100;
-    /** Maximum possible heuristic score */
-    private static final int MAX_SCORE = 100;
+    /** Minimum possible heuristic score, below any evaluation */
+    private static final int MIN_SCORE = -10 * Evaluator.MAX_VALUE;
+    /** Maximum possible heuristic score, above any evaluation */
+    private static final int MAX_SCORE = 10 * Evaluator.MAX_VALUE;
+    /**
+     * Mixed into table keys when searching for O, since values are stored
+     * relative to the searching player.
+     */
+    private static final long PERSPECTIVE_KEY = 0x9E3779B97F4A7C15L;
+    /** Number of nodes searched between checks of the limits */
+    private static final int CHECK_INTERVAL = 1024;
+    /** Minimum remaining depth of a node whose moves are searched in parallel */
+    private static final int SPLIT_DEPTH = 3;
+
+    // move ordering scores, each above any score of the next kind
+    private static final int WIN_ORDER = 1 << 30;
+    private static final int BLOCK_ORDER = 1 << 29;
+    private static final int KILLER_ORDER = 1 << 28;
+    /** History scores are halved when one reaches this limit */
+    private static final int HISTORY_LIMIT = 1 << 20;
+    /** Initial distance of the bounds of an aspiration window from the guess */
+    private static final int ASPIRATION_WINDOW = Evaluator.MAX_VALUE / 20;
+
+    /**
+     * Search algorithms. Each returns the same value for every move of the
+     * root, but searches a different number of nodes to find it.
+     */
+    public enum Algorithm
+    {
+        /** Alpha-beta search with the full window at every node */
+        ALPHA_BETA,
+        /**
+         * Principal variation search: the later moves of each node are first
+         * searched with a null window to prove that they are no better than
+         * the best move so far, and only searched again with the full window
+         * if they are
+         */
+        PVS,
+        /**
+         * Principal variation search in which each move of the root is first
+         * searched with a narrow window around its value from the previous
+         * iteration
+         */
+        ASPIRATION,
+        /**
+         * MTD(f): the value of each move of the root is found with a series
+         * of null window searches, which depend on the transposition table to
+         * avoid searching the same nodes again
+         */
+        MTDF
+    }
 
     private int maxDepth;
     private Mark myMark;
     private Random rng;
+    private TranspositionTable table;
+    private MoveCache cache;
+    private Evaluator evaluator;
+    private long keyMask;
+    private boolean useSymmetry;
+    private Algorithm algorithm;
+    private long timeLimit;
+    private long nodeLimit;
+    private int parallelism;
+    private ForkJoinPool pool;
+    /**
+     * Searches of finished tasks for each worker of the pool, reused by later
+     * tasks. A worker may run another task while it waits for the tasks it
+     * forked, so each worker needs a stack of them rather than just one.
+     */
+    private final ThreadLocal<ArrayDeque<Search>> idleSearches;
+
+    /** Number of calls to {@link #cancel()}, incremented by another thread */
+    private AtomicLong cancels;
+    /** Number of calls to {@link #cancel()} before the search in progress */
+    private long cancelCount;
+    /** Set when any part of the search reaches a limit or is cancelled */
+    private volatile boolean stopped;
+    private long deadline;
+    /** Nodes searched for the current move, updated every {@link #CHECK_INTERVAL} nodes */
+    private AtomicLong searchedNodes;
+
+    /** Search of the root position */
+    private Search rootSearch;
+    /** Move buffers of the root search, kept between moves */
+    private int[][] rootMoveBuffers;
+    /** Buffer of equally good moves at the root from the last completed iteration */
+    private int[] bestMoves;
+    /** Buffer of equally good moves at the root from the current iteration */
+    private int[] iterationBestMoves;
+    /** Value of each move at the root, indexed by position */
+    private int[] rootValues;
+    /** Value of each move at the root from the last completed iteration */
+    private int[] completedValues;
+    /** Statistics of the search in progress */
+    private SearchResult result;
+    /**
+     * Score of each move for each player, increased whenever the move causes
+     * a cutoff and kept between moves. Updated by every thread without
+     * synchronization, since lost updates only affect move ordering.
+     */
+    private int[][] history;
 
     /**
      * Constructs a new player with the specified maximum search depth.
@@ -26,11 +152,201 @@ public class AlphaBetaPlayer implements Player
      * @param   d maximum search depth
      */
     public AlphaBetaPlayer(int d)
+    {
+        this(d, null);
+    }
+
+    /**
+     * Constructs a new player with the specified maximum search depth and a
+     * transposition table of the specified size.
+     *
+     * @param   d           maximum search depth
+     * @param   tableSize   size of the transposition table in megabytes
+     */
+    public AlphaBetaPlayer(int d, int tableSize)
+    {
+        this(d, new TranspositionTable(tableSize));
+    }
+
+    /**
+     * Constructs a new player with the specified maximum search depth which
+     * uses the specified transposition table. The table may be {@code null},
+     * in which case no table is used.
+     *
+     * @param   d       maximum search depth
+     * @param   table   transposition table to use
+     */
+    public AlphaBetaPlayer(int d, TranspositionTable table)
     {
         // max depth should be at least 2.
         this.maxDepth = Math.max(d, 2);
         this.myMark = Mark.NONE;
         this.rng = new Random();
+        this.table = table;
+        this.evaluator = new LinePotentialEvaluator();
+        this.useSymmetry = true;
+        this.algorithm = Algorithm.ALPHA_BETA;
+        this.parallelism = 1;
+        this.searchedNodes = new AtomicLong();
+        this.cancels = new AtomicLong();
+        this.idleSearches = new ThreadLocal<ArrayDeque<Search>>() {
+            protected ArrayDeque<Search> initialValue() {
+                return new ArrayDeque<Search>();
+            }
+        };
+    }
+
+    /**
+     * Sets the random number generator used to choose between equally good
+     * moves, so that games can be reproduced.
+     *
+     * @param   rng     random number generator to use
+     */
+    public void setRandom(Random rng)
+    {
+        this.rng = rng;
+    }
+
+    /**
+     * Sets the evaluator used for positions at the maximum search depth which
+     * are not over. By default a {@link LinePotentialEvaluator} is used.
+     *
+     * @param   evaluator   evaluator to use, or {@code null} to give every
+     *                      such position a value of zero
+     */
+    public void setEvaluator(Evaluator evaluator)
+    {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Sets the cache of move values used by this player. By default no cache
+     * is used. Players only share the entries of a cache if they also share
+     * an evaluator.
+     *
+     * @param   cache   cache to use, or {@code null} to always search
+     */
+    public void setMoveCache(MoveCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets whether or not this player makes use of the symmetries of the board.
+     *
+     * @param   useSymmetry     whether or not symmetric moves and positions
+     *                          are searched only once
+     */
+    public void setUseSymmetry(boolean useSymmetry)
+    {
+        this.useSymmetry = useSymmetry;
+    }
+
+    /**
+     * Sets the search algorithm. By default {@link Algorithm#ALPHA_BETA} is used.
+     *
+     * @param   algorithm   search algorithm to use
+     */
+    public void setAlgorithm(Algorithm algorithm)
+    {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Returns the search algorithm.
+     *
+     * @return  the search algorithm
+     */
+    public Algorithm getAlgorithm()
+    {
+        return this.algorithm;
+    }
+
+    /**
+     * Sets the maximum amount of time to spend on each move. The search stops
+     * when the time is up, even during the first iteration, in which case the
+     * first move in search order is played.
+     *
+     * @param   millis  time limit in milliseconds, or {@code 0} for no limit
+     */
+    public void setTimeLimit(long millis)
+    {
+        this.timeLimit = Math.max(millis, 0);
+    }
+
+    /**
+     * Sets the maximum number of nodes to search for each move. The search
+     * stops when the limit is reached, even during the first iteration, in
+     * which case the first move in search order is played.
+     *
+     * @param   nodes   node limit, or {@code 0} for no limit
+     */
+    public void setNodeLimit(long nodes)
+    {
+        this.nodeLimit = Math.max(nodes, 0);
+    }
+
+    /**
+     * Sets the number of threads used by the search. With a parallelism of one,
+     * the search runs on the thread which calls {@link #getMove(Board)}.
+     *
+     * @param   parallelism     number of threads to search with
+     */
+    public synchronized void setParallelism(int parallelism)
+    {
+        parallelism = Math.max(parallelism, 1);
+        if (parallelism != this.parallelism && this.pool != null) {
+            this.pool.shutdown();
+            this.pool = null;
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of threads used by the search.
+     *
+     * @return  the number of threads used by the search
+     */
+    public int getParallelism()
+    {
+        return this.parallelism;
+    }
+
+    /**
+     * Stops the search in progress, if any. The call to {@link #getMove(Board)}
+     * returns as soon as possible with the best move found so far. May be
+     * called from any thread.
+     * <p>
+     * A search started later with {@link #analyze(Board)} is not affected, but
+     * one started with {@link #analyze(Board, long)} is stopped if it was given
+     * a count from before this call.
+     */
+    public void cancel()
+    {
+        this.cancels.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of calls to {@link #cancel()} so far. A search started
+     * with this count by {@link #analyze(Board, long)} is stopped by any later
+     * call to {@code cancel()}, even one made before the search starts.
+     *
+     * @return  the number of calls to {@code cancel()}
+     */
+    public long getCancelCount()
+    {
+        return this.cancels.get();
+    }
+
+    /**
+     * Returns the transposition table used by this player, which may be used
+     * to inspect its hit and miss counters.
+     *
+     * @return  the transposition table of this player, or {@code null} if there is none
+     */
+    public TranspositionTable getTranspositionTable()
+    {
+        return this.table;
     }
 
     /**
@@ -41,126 +357,959 @@ public class AlphaBetaPlayer implements Player
      */
     public int getMove(Board b)
     {
+        return this.analyze(b).getMove();
+    }
+
+    /**
+     * Selects a move for the specified {@code Board} in the same way as
+     * {@link #getMove(Board)}, and returns it together with the values of the
+     * moves and statistics about the search.
+     *
+     * @param   b   board to evaluate
+     * @return  the selected move and statistics about the search
+     */
+    public SearchResult analyze(Board b)
+    {
+        return this.analyze(b, this.cancels.get());
+    }
+
+    /**
+     * Selects a move for the specified {@code Board} in the same way as
+     * {@link #analyze(Board)}, but stops as soon as possible if
+     * {@link #cancel()} has been called since the specified count was
+     * returned by {@link #getCancelCount()}.
+     *
+     * @param   b               board to evaluate
+     * @param   cancelCount     number of calls to {@code cancel()} to ignore
+     * @return  the selected move and statistics about the search
+     */
+    public SearchResult analyze(Board b, long cancelCount)
+    {
+        long start = System.nanoTime();
+        this.cancelCount = cancelCount;
         this.myMark = b.getCurrentPlayer();
+        this.result = new SearchResult(b.getSize(), Math.min(this.maxDepth, b.getSize()));
+
+        // special case: first turn of standard board - slect corner
+        if (b.getTurn() == 0 && b.getSize() == 9) {
+            this.result.setMove(0, 0, null, 0, null);
+            this.result.finish(0, System.nanoTime() - start);
+            return this.result;
+        }
+
+        // searching past the end of the game gives the same result
+        int lastDepth = Math.min(this.maxDepth, b.getSize() - b.getTurn());
+
+        if (this.cache != null && b.getWinner() == Mark.NONE) {
+            int[] values = this.cache.get(b, lastDepth, this.evaluator);
+            if (values != null) {
+                return this.cachedResult(b, lastDepth, values, start);
+            }
+        }
+
+        // search a private copy so that the caller's board is never modified
+        this.allocateBuffers(b.getSize());
+        this.rootSearch = new Search((Board)b.clone(), this.rootMoveBuffers, null);
+        this.keyMask = this.myMark == Mark.O ? PERSPECTIVE_KEY : 0L;
+        if (this.table != null) {
+            this.table.newSearch();
+        }
+        this.ageHistory();
+
+        this.searchedNodes.set(0);
+        this.stopped = this.cancels.get() != cancelCount;
+        this.deadline = this.timeLimit > 0
+                      ? System.nanoTime() + this.timeLimit * 1000000L
+                      : Long.MAX_VALUE;
+
+        final int[] moves = new int[b.getSize()];
+        final int numMoves = b.getLegalMoves(moves);
+        // later iterations order the moves by their values instead
+        this.rootSearch.orderMoves(moves, numMoves, 0);
+        int numBest = 0;
+        int completedDepth = 0;
+        ForkJoinPool pool = this.getPool();
+
+        for (int depth = 1; depth <= lastDepth && !this.stopped; depth++) {
+            int n;
+            if (pool == null) {
+                n = alphabetaRoot(moves, numMoves, depth);
+            } else {
+                final int d = depth;
+                n = pool.invoke(new RecursiveTask<Integer>() {
+                    protected Integer compute() {
+                        return alphabetaRoot(moves, numMoves, d);
+                    }
+                });
+            }
+            if (this.stopped) {
+                break;
+            }
+
+            numBest = n;
+            completedDepth = depth;
+            // the nodes of the root search are only counted when it finishes
+            this.result.completeIteration(depth, this.searchedNodes.get()
+                                                 + (this.rootSearch.nodes & (CHECK_INTERVAL - 1)));
+            System.arraycopy(this.iterationBestMoves, 0, this.bestMoves, 0, n);
+            System.arraycopy(this.rootValues, 0, this.completedValues, 0, this.rootValues.length);
+            sortByValue(moves, numMoves, this.rootValues);
+        }
+
+        if (completedDepth == 0 && numMoves > 0) {
+            // stopped during the first iteration: play the first move in
+            // search order, which wins or blocks a win if any move does
+            this.bestMoves[0] = moves[0];
+            numBest = 1;
+        }
+
+        this.rootSearch.flushNodes();
+        this.rootSearch.flushStatistics();
+
+        // select a random move from list of best moves, in the same order as
+        // a cached result so that the choice does not depend on the cache
+        Arrays.sort(this.bestMoves, 0, numBest);
+        int move = numBest == 0 ? Board.INVALID_MOVE : this.bestMoves[this.rng.nextInt(numBest)];
+        this.result.setMove(move, completedDepth, moves, completedDepth == 0 ? 0 : numMoves,
+                            this.completedValues);
+        this.result.finish(this.searchedNodes.get(), System.nanoTime() - start);
+
+        if (this.cache != null && completedDepth == lastDepth && numBest > 0) {
+            int[] values = new int[b.getSize()];
+            Arrays.fill(values, Integer.MIN_VALUE);
+            for (int i = 0; i < numMoves; i++) {
+                values[moves[i]] = this.completedValues[moves[i]];
+            }
+            this.cache.put(b, lastDepth, this.evaluator, values);
+        }
+
+        return this.result;
+    }
+
+    /**
+     * Returns the result of selecting a move using the values from the cache.
+     *
+     * @param   b       board to select a move for
+     * @param   depth   depth the values were searched to
+     * @param   values  value of each move, indexed by position
+     * @param   start   time the call to {@link #analyze(Board)} started
+     * @return  the selected move and the values of the moves
+     */
+    private SearchResult cachedResult(Board b, int depth, int[] values, long start)
+    {
+        int[] moves = new int[b.getSize()];
+        int numMoves = b.getLegalMoves(moves);
+        int[] best = new int[numMoves];
+        int numBest = 0;
+        int bestHeuristic = Integer.MIN_VALUE;
+
+        for (int i = 0; i < numMoves; i++) {
+            int heuristic = values[moves[i]];
+            if (heuristic > bestHeuristic) {
+                numBest = 0;
+                bestHeuristic = heuristic;
+            }
+            if (heuristic == bestHeuristic) {
+                best[numBest++] = moves[i];
+            }
+        }
+
+        this.result.setMove(best[this.rng.nextInt(numBest)], depth, moves, numMoves, values);
+        this.result.setCached();
+        this.result.finish(0, System.nanoTime() - start);
+
+        return this.result;
+    }
+
+    /**
+     * Returns the pool to search with, creating it if necessary, or
+     * {@code null} if the search is serial.
+     *
+     * @return  the pool to search with
+     */
+    private synchronized ForkJoinPool getPool()
+    {
+        if (this.parallelism > 1 && this.pool == null) {
+            this.pool = new ForkJoinPool(this.parallelism);
+        }
 
-        // special case: first turn - slect corner
-        if (b.getTurn() == 0) {
-            return 0;
+        return this.pool;
+    }
+
+    /**
+     * Allocates the root search buffers for boards with the specified number of
+     * spaces, unless buffers of that size have already been allocated.
+     *
+     * @param   size    number of spaces on the board
+     */
+    private void allocateBuffers(int size)
+    {
+        if (this.bestMoves == null || this.bestMoves.length != size) {
+            this.bestMoves = new int[size];
+            this.iterationBestMoves = new int[size];
+            this.rootValues = new int[size];
+            this.completedValues = new int[size];
+            this.rootMoveBuffers = this.newMoveBuffers(size);
+            this.history = new int[2][size];
         }
+    }
 
-        return alphabetaRoot(b, this.maxDepth, MIN_SCORE-1, MAX_SCORE+1);
+    /**
+     * Halves the history score of every move, so that the scores from earlier
+     * moves count less than those of the current move.
+     */
+    private void ageHistory()
+    {
+        for (int[] scores : this.history) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Returns a new buffer of legal moves for each ply of a search of a board
+     * with the specified number of spaces.
+     *
+     * @param   size    number of spaces on the board
+     * @return  new move buffers
+     */
+    private int[][] newMoveBuffers(int size)
+    {
+        return new int[Math.min(this.maxDepth, size) + 1][size];
     }
 
     /**
-     * Returns the best move for the specified Board.
+     * Searches each of the specified moves of the root search board and
+     * stores the moves with the best value.
+     * <p>
+     * Every move is searched with a full window rather than a window raised
+     * to the best value so far, since the exact value of every move is part
+     * of the result: it is used to choose randomly between equally good moves,
+     * it is stored in the move cache, and the analyzers report how much worse
+     * each move is than the best one. A raised window would only give a bound
+     * for the moves which are not best.
      *
-     * @param   board   board that is being searched
-     * @param   depth   maximum search depth
-     * @param   alpha   alpha cutoff (minimum)
-     * @param   beta    beat cutoff (maximum)
-     * @return  the index of the best move
+     * @param   moves       moves to search
+     * @param   numMoves    number of moves to search
+     * @param   depth       maximum search depth
+     * @return  the number of best moves
      */
-    private int alphabetaRoot(Board board, int depth, int alpha, int beta)
+    private int alphabetaRoot(int[] moves, int numMoves, int depth)
     {
+        Board board = this.rootSearch.board;
         int bestHeuristic = MIN_SCORE;
-        HashMap<Integer, Board> possibleMoves = new HashMap<Integer, Board>();
-        ArrayList<Integer> bestMoves = new ArrayList<Integer>();
+        int numBest = 0;
+        int symmetries = this.useSymmetry ? board.getSymmetries() & ~1 : 0;
+        List<SearchTask> tasks = null;
 
+        // try each possible move, except those symmetric to another move
+        for (int i = 0; i < numMoves; i++) {
+            if (board.getRepresentative(moves[i], symmetries) != moves[i]) {
+                continue;
+            }
 
-        // populate list of possible moves
-        for (int i = 0; i < 9; i++) {
-            Board temp = (Board)board.clone();
-            try {
-                if (temp.markAt(i) == Mark.NONE) {
-                    temp.play(i);
-                    possibleMoves.put(i, temp);
+            if (tasks == null) {
+                // search the eldest move, which is expected to be best, alone
+                this.rootSearch.makeMove(moves[i]);
+                this.rootValues[moves[i]] = this.rootSearch.searchRoot(depth - 1, guess(moves[i], depth));
+                this.rootSearch.undo();
+
+                if (this.stopped) {
+                    return 0;
                 }
+                if (ForkJoinTask.inForkJoinPool()) {
+                    tasks = new ArrayList<SearchTask>();
+                }
+            } else {
+                Board child = (Board)board.clone();
+                child.makeMove(moves[i]);
+                tasks.add(new SearchTask(child, moves[i], depth - 1, guess(moves[i], depth)));
+            }
+        }
 
-            } catch (IllegalMoveException e) {
-                // should never reach here, since valid moves are checked above
+        if (tasks != null) {
+            ForkJoinTask.invokeAll(tasks);
+            if (this.stopped) {
+                return 0;
+            }
+            for (SearchTask task : tasks) {
+                this.rootValues[task.move] = task.value;
             }
         }
 
-        // try each possible move
-        for (Map.Entry<Integer, Board> entry : possibleMoves.entrySet()) {
-            int heuristic = alphabeta(entry.getValue(), depth - 1, alpha, beta);
+        for (int i = 0; i < numMoves; i++) {
+            // symmetric moves have the same value as the move that was searched
+            int heuristic = this.rootValues[board.getRepresentative(moves[i], symmetries)];
+            this.rootValues[moves[i]] = heuristic;
+
             // if move is better than previous best
             if (heuristic > bestHeuristic) {
-                // create new list of best moves
-                bestMoves = new ArrayList<Integer>();
-                bestMoves.add(entry.getKey());
+                // start new list of best moves
+                numBest = 0;
+                this.iterationBestMoves[numBest++] = moves[i];
                 bestHeuristic = heuristic;
 
             } else if (heuristic == bestHeuristic) {
                 // if equal to previous best, add to list of best moves
-                bestMoves.add(entry.getKey());
+                this.iterationBestMoves[numBest++] = moves[i];
             }
         }
 
-        // select a random move from list of best moves
-        return bestMoves.get(this.rng.nextInt(bestMoves.size()));
+        return numBest;
     }
 
     /**
-     * Returns the heuristic value for the best move of the specified Board.
+     * Returns the value of the specified move of the root from the previous
+     * iteration, which aspiration search and MTD(f) start from.
      *
-     * @param   board   board that is being searched
-     * @param   depth   maximum search depth
-     * @param   alpha   alpha cutoff (minimum)
-     * @param   beta    beat cutoff (maximum)
-     * @return  heuristic value of the best move
+     * @param   move    position of the move
+     * @param   depth   depth of the current iteration
+     * @return  value of the move, or {@code Integer.MIN_VALUE} in the first iteration
      */
-    private int alphabeta(Board board, int depth, int alpha, int beta)
+    private int guess(int move, int depth)
     {
-        // if terminal node, return heuristic.
-        if (depth == 0 || board.getWinner() != Mark.NONE) {
-            if (board.getWinner() == this.myMark) {
-                return MAX_SCORE;
-            } else if (board.getWinner() == this.myMark.opposite()) {
-                return MIN_SCORE;
-            } else {
-                return 0;
+        return depth > 1 ? this.completedValues[move] : Integer.MIN_VALUE;
+    }
+
+    /**
+     * Sorts the specified moves from highest to lowest value. Moves with equal
+     * values keep their relative order.
+     *
+     * @param   moves       moves to sort
+     * @param   numMoves    number of moves to sort
+     * @param   values      value of each move, indexed by position
+     */
+    private static void sortByValue(int[] moves, int numMoves, int[] values)
+    {
+        for (int i = 1; i < numMoves; i++) {
+            int move = moves[i];
+            int j = i - 1;
+            while (j >= 0 && values[moves[j]] < values[move]) {
+                moves[j+1] = moves[j];
+                j--;
+            }
+            moves[j+1] = move;
+        }
+    }
+
+    /**
+     * Moves the specified move to the front of the list of moves, shifting the
+     * moves before it back by one. Does nothing if the move is not in the list.
+     *
+     * @param   moves       list of moves
+     * @param   numMoves    number of moves in the list
+     * @param   move        move to move to the front
+     */
+    private static void moveToFront(int[] moves, int numMoves, int move)
+    {
+        for (int i = 0; i < numMoves; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
             }
         }
+    }
 
-        // create list of possible moves
-        ArrayList<Board> possibleMoves = new ArrayList<Board>();
+    public void actionPerformed(ActionEvent ae) { /* do nothing */ }
 
-        for (int i = 0; i < 9; i++) {
-            Board temp = (Board)board.clone();
-            try {
-                if (temp.markAt(i) == Mark.NONE) {
-                    temp.play(i);
-                    possibleMoves.add(temp);
+    /**
+     * A depth-first search of one board, which is modified in place. Each
+     * thread of a parallel search has its own {@code Search}.
+     */
+    private final class Search
+    {
+        private Board board;
+        /** Buffer of legal moves for each ply of the search */
+        private final int[][] moveBuffers;
+        /** Node this search was split from, or {@code null} */
+        private SplitPoint parent;
+        private long nodes;
+        private boolean aborted;
+
+        // statistics, added to the result when this search is finished
+        private long leaves;
+        private long[] cutoffs;
+        private int maxPly;
+        private long probes;
+        private long hits;
+        private long stores;
+
+        /** Ordering score of each move in the move buffers */
+        private final int[][] scores;
+        /** The two most recent moves which caused a cutoff at each ply */
+        private final int[][] killers;
+        /** Evaluator of this search, or {@code null} */
+        private final Evaluator eval;
+        /** Evaluator of the player that {@link #eval} was copied from */
+        private final Evaluator source;
+
+        Search(Board board, int[][] moveBuffers, SplitPoint parent)
+        {
+            this.moveBuffers = moveBuffers;
+            this.cutoffs = new long[moveBuffers.length];
+            this.scores = new int[moveBuffers.length][board.getSize()];
+            this.killers = new int[moveBuffers.length][2];
+            this.source = evaluator;
+            this.eval = evaluator == null ? null : evaluator.copy();
+            this.reset(board, parent);
+        }
+
+        /**
+         * Prepares this search to search the specified board, as if it had
+         * just been constructed.
+         *
+         * @param   board   board to search, which is modified in place
+         * @param   parent  node the board was split from, or {@code null}
+         */
+        void reset(Board board, SplitPoint parent)
+        {
+            this.board = board;
+            this.parent = parent;
+            this.nodes = 0;
+            this.aborted = false;
+            this.leaves = 0;
+            Arrays.fill(this.cutoffs, 0L);
+            this.maxPly = 0;
+            this.probes = 0;
+            this.hits = 0;
+            this.stores = 0;
+            for (int[] k : this.killers) {
+                Arrays.fill(k, Board.INVALID_MOVE);
+            }
+
+            if (this.eval != null) {
+                this.eval.reset(board);
+            }
+        }
+
+        /**
+         * Returns whether or not this search can be reset to search the
+         * specified board with the current settings of the player.
+         *
+         * @param   board   board to search
+         * @return  {@code true} if the buffers and evaluator of this search fit
+         */
+        boolean fits(Board board)
+        {
+            return this.source == evaluator
+                && this.scores[0].length == board.getSize()
+                && this.moveBuffers.length == Math.min(maxDepth, board.getSize()) + 1;
+        }
+
+        /**
+         * Plays the specified move on the search board.
+         *
+         * @param   move    position of the move
+         */
+        void makeMove(int move)
+        {
+            this.board.makeMove(move);
+            if (this.eval != null) {
+                this.eval.played(this.board, move);
+            }
+        }
+
+        /**
+         * Takes back the most recent move on the search board.
+         */
+        void undo()
+        {
+            if (this.eval != null) {
+                this.eval.undone(this.board, this.board.getLastMove());
+            }
+            this.board.undo();
+        }
+
+        /**
+         * Sorts the specified moves of the search board from most to least
+         * promising: moves which win, then moves which block a win by the
+         * opponent, then the killer moves of the ply, then the rest by their
+         * history score. Moves through more lines, such as the center and the
+         * corners of a 3x3 board, break ties in the history score.
+         *
+         * @param   moves       moves to sort
+         * @param   numMoves    number of moves to sort
+         * @param   ply         distance from the root of the search
+         */
+        void orderMoves(int[] moves, int numMoves, int ply)
+        {
+            Mark player = this.board.getCurrentPlayer();
+            Mark opponent = player.opposite();
+            int[] playerHistory = history[player == Mark.X ? 0 : 1];
+            int[][] cellLines = this.board.getGeometry().cellLines;
+            int[] killer = this.killers[ply];
+            int[] score = this.scores[ply];
+
+            for (int i = 0; i < numMoves; i++) {
+                int move = moves[i];
+                int s;
+                if (this.board.isWinningMove(move, player)) {
+                    s = WIN_ORDER;
+                } else if (this.board.isWinningMove(move, opponent)) {
+                    s = BLOCK_ORDER;
+                } else if (move == killer[0]) {
+                    s = KILLER_ORDER + 1;
+                } else if (move == killer[1]) {
+                    s = KILLER_ORDER;
+                } else {
+                    s = playerHistory[move] + cellLines[move].length;
                 }
-            } catch (IllegalMoveException e) {
-                // should never reach here, since valid moves are checked above
+
+                // insert into the sorted moves before it
+                int j = i - 1;
+                while (j >= 0 && score[j] < s) {
+                    moves[j+1] = moves[j];
+                    score[j+1] = score[j];
+                    j--;
+                }
+                moves[j+1] = move;
+                score[j+1] = s;
             }
         }
 
-        // maximize
-        if (board.getCurrentPlayer() == this.myMark) {
-            for (Board b : possibleMoves) {
-                alpha = Math.max(alpha, alphabeta(b, depth-1, alpha, beta));
-                if (beta <= alpha) {
-                    break;
+        /**
+         * Records that the specified move caused a cutoff.
+         *
+         * @param   move    position of the move
+         * @param   depth   remaining depth of the node
+         * @param   ply     distance from the root of the search
+         */
+        private void recordCutoff(int move, int depth, int ply)
+        {
+            this.cutoffs[ply]++;
+
+            int[] killer = this.killers[ply];
+            if (killer[0] != move) {
+                killer[1] = killer[0];
+                killer[0] = move;
+            }
+
+            int[] playerHistory = history[this.board.getCurrentPlayer() == Mark.X ? 0 : 1];
+            if ((playerHistory[move] += depth * depth) >= HISTORY_LIMIT) {
+                ageHistory();
+            }
+        }
+
+        /**
+         * Returns the value of the search board for the player who made the
+         * last move, searched with the algorithm of the player. This is the
+         * value of that move to its parent.
+         *
+         * @param   depth   remaining search depth
+         * @param   alpha   alpha cutoff (minimum) for the player who moved
+         * @param   beta    beta cutoff (maximum) for the player who moved
+         * @param   ply     distance from the root of the search
+         * @param   scout   whether or not the move is a later move of a node,
+         *                  which principal variation search first tries to
+         *                  prove no better than alpha
+         * @return  value of the last move
+         */
+        int searchMove(int depth, int alpha, int beta, int ply, boolean scout)
+        {
+            if (scout && beta - alpha > 1 && algorithm != Algorithm.ALPHA_BETA) {
+                int value = -this.negamax(depth, -alpha - 1, -alpha, ply);
+                if (value <= alpha || value >= beta || this.aborted) {
+                    return value;
                 }
             }
 
-            return alpha;
+            return -this.negamax(depth, -beta, -alpha, ply);
+        }
+
+        /**
+         * Returns the exact value of the last move of the search board, which
+         * is a move of the root, for the searching player. Plain alpha-beta and
+         * principal variation search use a full window; aspiration search uses
+         * a window around the value from the previous iteration which is
+         * widened until the value falls inside it; MTD(f) converges on the
+         * value with a series of null window searches starting from the value
+         * from the previous iteration.
+         *
+         * @param   depth   remaining search depth
+         * @param   guess   value of the move from the previous iteration, or
+         *                  {@code Integer.MIN_VALUE} if there is none
+         * @return  value of the move
+         */
+        int searchRoot(int depth, int guess)
+        {
+            int lower = MIN_SCORE-1;
+            int upper = MAX_SCORE+1;
 
-        // minimize
-        } else {
-            for (Board b : possibleMoves) {
-                beta = Math.min(beta, alphabeta(b, depth-1, alpha, beta));
-                if (beta <= alpha) {
+            if (algorithm == Algorithm.MTDF) {
+                int value = guess == Integer.MIN_VALUE ? 0 : guess;
+                while (lower < upper && !this.aborted) {
+                    int beta = value == lower ? value + 1 : value;
+                    value = this.searchMove(depth, beta - 1, beta, 1, false);
+                    if (value < beta) {
+                        upper = value;
+                    } else {
+                        lower = value;
+                    }
+                }
+                return value;
+            }
+
+            if (algorithm == Algorithm.ASPIRATION && guess != Integer.MIN_VALUE) {
+                int delta = ASPIRATION_WINDOW;
+                int alpha = Math.max(guess - delta, lower);
+                int beta = Math.min(guess + delta, upper);
+                while (true) {
+                    int value = this.searchMove(depth, alpha, beta, 1, false);
+                    if (this.aborted) {
+                        return 0;
+                    }
+
+                    // widen the side the value fell outside of
+                    delta *= 2;
+                    if (value <= alpha && alpha > lower) {
+                        alpha = Math.max(value - delta, lower);
+                    } else if (value >= beta && beta < upper) {
+                        beta = Math.min(value + delta, upper);
+                    } else {
+                        return value;
+                    }
+                }
+            }
+
+            return this.searchMove(depth, lower, upper, 1, false);
+        }
+
+        /**
+         * Returns the value of the search board for the player to move. The
+         * value is exact if it is strictly between alpha and beta; otherwise
+         * it is an upper bound if it is at most alpha, or a lower bound if it
+         * is at least beta.
+         *
+         * @param   depth   maximum search depth
+         * @param   alpha   alpha cutoff (minimum)
+         * @param   beta    beat cutoff (maximum)
+         * @param   ply     distance from the root of the search
+         * @return  value of the board for the player to move
+         */
+        int negamax(int depth, int alpha, int beta, int ply)
+        {
+            if ((++this.nodes & (CHECK_INTERVAL - 1)) == 0) {
+                this.checkLimits();
+            }
+
+            if (ply > this.maxPly) {
+                this.maxPly = ply;
+            }
+            Mark winner = this.board.getWinner();
+
+            // if terminal node, return heuristic.
+            if (depth == 0 || winner != Mark.NONE) {
+                this.leaves++;
+                int heuristic;
+                if (winner == myMark) {
+                    heuristic = MAX_SCORE;
+                } else if (winner == myMark.opposite()) {
+                    heuristic = MIN_SCORE;
+                } else if (winner == Mark.NONE && this.eval != null) {
+                    heuristic = this.eval.evaluate(this.board, myMark);
+                } else {
+                    heuristic = 0;
+                }
+                return this.board.getCurrentPlayer() == myMark ? heuristic : -heuristic;
+            }
+
+            int[] moves = this.moveBuffers[ply];
+            int numMoves;
+            int symmetry;
+            if (useSymmetry) {
+                numMoves = this.board.getDistinctMoves(moves);
+                symmetry = this.board.getCanonicalTransform();
+            } else {
+                numMoves = this.board.getLegalMoves(moves);
+                symmetry = 0;
+            }
+            long key = this.board.getHash(symmetry) ^ keyMask;
+            int tableMove = Board.INVALID_MOVE;
+
+            if (table != null) {
+                long entry = table.probe(key);
+                this.probes++;
+                if (entry != 0L) {
+                    this.hits++;
+                    // narrow the window using the stored result if deep enough
+                    if (TranspositionTable.depthOf(entry) >= depth) {
+                        int value = TranspositionTable.valueOf(entry);
+                        switch (TranspositionTable.flagOf(entry)) {
+                            case TranspositionTable.EXACT:
+                                return value;
+                            case TranspositionTable.LOWER_BOUND:
+                                alpha = Math.max(alpha, value);
+                                break;
+                            case TranspositionTable.UPPER_BOUND:
+                                beta = Math.min(beta, value);
+                                break;
+                        }
+                        if (beta <= alpha) {
+                            return value;
+                        }
+                    }
+
+                    // the stored best move is stored for the canonical form
+                    int move = TranspositionTable.moveOf(entry);
+                    if (move != Board.INVALID_MOVE) {
+                        tableMove = this.board.inverseTransform(move, symmetry);
+                    }
+                }
+            }
+            int alphaOrig = alpha;
+
+            this.orderMoves(moves, numMoves, ply);
+            if (tableMove != Board.INVALID_MOVE) {
+                // try the stored best move first
+                moveToFront(moves, numMoves, tableMove);
+            }
+
+            int best = MIN_SCORE-1;
+            int bestMove = Board.INVALID_MOVE;
+
+            for (int i = 0; i < numMoves && alpha < beta; i++) {
+                // once the eldest move has been searched, search the rest in parallel
+                if (i == 1 && depth >= SPLIT_DEPTH && pool != null && ForkJoinTask.inForkJoinPool()) {
+                    SplitPoint split = new SplitPoint(this.parent, alpha, beta, best, bestMove);
+                    List<SearchTask> tasks = new ArrayList<SearchTask>(numMoves - 1);
+                    for (int j = 1; j < numMoves; j++) {
+                        Board child = (Board)this.board.clone();
+                        child.makeMove(moves[j]);
+                        tasks.add(new SearchTask(split, child, moves[j], depth - 1, ply + 1));
+                    }
+                    ForkJoinTask.invokeAll(tasks);
+
+                    if (stopped || (this.parent != null && this.parent.isCutOff())) {
+                        this.aborted = true;
+                        return 0;
+                    }
+                    alpha = split.alpha;
+                    best = split.best;
+                    bestMove = split.bestMove;
+                    if (alpha >= beta) {
+                        this.cutoffs[ply]++;
+                    }
                     break;
                 }
+
+                this.makeMove(moves[i]);
+                int heuristic = this.searchMove(depth-1, alpha, beta, ply+1, i > 0);
+                this.undo();
+                if (this.aborted) {
+                    return 0;
+                }
+
+                if (heuristic > best) {
+                    best = heuristic;
+                    if (heuristic > alpha) {
+                        alpha = heuristic;
+                        bestMove = moves[i];
+                    }
+                }
+                if (alpha >= beta && i < numMoves - 1) {
+                    this.recordCutoff(moves[i], depth, ply);
+                }
+            }
+
+            if (table != null) {
+                int flag;
+                if (best <= alphaOrig) {
+                    flag = TranspositionTable.UPPER_BOUND;
+                } else if (best >= beta) {
+                    flag = TranspositionTable.LOWER_BOUND;
+                } else {
+                    flag = TranspositionTable.EXACT;
+                }
+                if (bestMove != Board.INVALID_MOVE) {
+                    bestMove = this.board.transform(bestMove, symmetry);
+                }
+                table.store(key, best, depth, flag, bestMove);
+                this.stores++;
+            }
+
+            return best;
+        }
+
+        /**
+         * Counts the last {@link #CHECK_INTERVAL} nodes and stops the search
+         * if any of the limits have been reached.
+         */
+        private void checkLimits()
+        {
+            this.testLimits(searchedNodes.addAndGet(CHECK_INTERVAL));
+        }
+
+        /**
+         * Stops the search if the time or node limit has been reached, if the
+         * search has been cancelled, or if the node it was split from no
+         * longer needs its result.
+         *
+         * @param   total   number of nodes searched for the current move
+         */
+        void testLimits(long total)
+        {
+            if (stopped) {
+                this.aborted = true;
+            } else if (cancels.get() != cancelCount
+                       || (nodeLimit > 0 && total >= nodeLimit)
+                       || System.nanoTime() >= deadline) {
+                stopped = true;
+                this.aborted = true;
+            } else if (this.parent != null && this.parent.isCutOff()) {
+                this.aborted = true;
             }
+        }
 
-            return beta;
+        /**
+         * Adds the nodes which have not yet been counted to the total.
+         */
+        void flushNodes()
+        {
+            searchedNodes.addAndGet(this.nodes & (CHECK_INTERVAL - 1));
+        }
+
+        /**
+         * Adds the statistics of this search to the result and the table.
+         */
+        void flushStatistics()
+        {
+            result.add(this.leaves, this.cutoffs, this.maxPly, this.probes, this.hits);
+            if (table != null) {
+                table.addStatistics(this.probes, this.hits, this.stores);
+            }
         }
     }
 
-    public void actionPerformed(ActionEvent ae) { /* do nothing */ }
+    /**
+     * A node whose moves are being searched in parallel. Alpha and the best
+     * value are updated as each move is searched, and moves which start later
+     * use the updated alpha.
+     */
+    private static final class SplitPoint
+    {
+        private final SplitPoint parent;
+        private final int beta;
+        private volatile int alpha;
+        private volatile int best;
+        private volatile int bestMove;
+
+        SplitPoint(SplitPoint parent, int alpha, int beta, int best, int bestMove)
+        {
+            this.parent = parent;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.best = best;
+            this.bestMove = bestMove;
+        }
+
+        /**
+         * Updates the bounds with the value of the specified move.
+         *
+         * @param   value   value of the move
+         * @param   move    position of the move
+         */
+        synchronized void update(int value, int move)
+        {
+            if (value > this.best) {
+                this.best = value;
+                if (value > this.alpha) {
+                    this.alpha = value;
+                    this.bestMove = move;
+                }
+            }
+        }
+
+        /**
+         * Returns whether or not the remaining moves of this node, or of any
+         * node it was split from, no longer need to be searched.
+         *
+         * @return  {@code true} if this node has been cut off
+         */
+        boolean isCutOff()
+        {
+            for (SplitPoint p = this; p != null; p = p.parent) {
+                if (p.beta <= p.alpha) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Searches one move of a node, or of the root if there is no split point.
+     */
+    @SuppressWarnings("serial")
+    private final class SearchTask extends RecursiveAction
+    {
+        private final SplitPoint split;
+        private final Board board;
+        private final int move;
+        private final int depth;
+        private final int ply;
+        private int guess;
+        private int value;
+
+        SearchTask(SplitPoint split, Board board, int move, int depth, int ply)
+        {
+            this.split = split;
+            this.board = board;
+            this.move = move;
+            this.depth = depth;
+            this.ply = ply;
+            this.guess = Integer.MIN_VALUE;
+        }
+
+        /**
+         * Constructs a task which searches one move of the root.
+         *
+         * @param   board   root board after the move
+         * @param   move    position of the move
+         * @param   depth   remaining search depth
+         * @param   guess   value of the move from the previous iteration, or
+         *                  {@code Integer.MIN_VALUE} if there is none
+         */
+        SearchTask(Board board, int move, int depth, int guess)
+        {
+            this(null, board, move, depth, 1);
+            this.guess = guess;
+        }
+
+        protected void compute()
+        {
+            // reuse a search of a finished task of this worker if there is one
+            ArrayDeque<Search> idle = idleSearches.get();
+            Search search = idle.pollLast();
+            if (search != null && search.fits(this.board)) {
+                search.reset(this.board, this.split);
+            } else {
+                search = new Search(this.board, newMoveBuffers(this.board.getSize()), this.split);
+            }
+
+            try {
+                search.testLimits(searchedNodes.get());
+                if (search.aborted) {
+                    return;
+                }
+
+                if (this.split == null) {
+                    this.value = search.searchRoot(this.depth, this.guess);
+                } else {
+                    this.value = search.searchMove(this.depth, this.split.alpha, this.split.beta,
+                                                   this.ply, true);
+                }
+                search.flushNodes();
+                search.flushStatistics();
+
+                if (!search.aborted && this.split != null) {
+                    this.split.update(this.value, this.move);
+                }
+            } finally {
+                idle.addLast(search);
+            }
+        }
+    }
 }
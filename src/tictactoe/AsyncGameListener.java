@@ -0,0 +1,142 @@
+package tictactoe;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link GameListener} which delivers events to another listener on an
+ * {@code Executor}, so that a slow listener does not hold up the game. For
+ * example, a listener which updates a user interface can be given an
+ * executor which runs tasks on the event dispatch thread.
+ * <p>
+ * Events are delivered one at a time, in order. While the listener is behind,
+ * consecutive move events from the same driver are coalesced into the most
+ * recent one, whose board includes the moves that were skipped. Game start
+ * and game over events are always delivered.
+ *
+ * @author Todd Taomae
+ */
+public class AsyncGameListener implements GameListener
+{
+    private final GameListener listener;
+    private final Executor executor;
+    /** Events which have not been delivered, guarded by itself */
+    private final ArrayDeque<GameEvent> pending;
+    /** Whether a task delivering the pending events has been submitted */
+    private boolean scheduled;
+    private long coalesced;
+    private final Runnable delivery;
+
+    /**
+     * Constructs a new listener which delivers events to the specified
+     * listener on the specified executor.
+     *
+     * @param   listener    listener to deliver events to
+     * @param   executor    executor to deliver events on
+     */
+    public AsyncGameListener(GameListener listener, Executor executor)
+    {
+        this.listener = listener;
+        this.executor = executor;
+        this.pending = new ArrayDeque<GameEvent>();
+        this.delivery = new Runnable() {
+            public void run() {
+                deliverPending();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of move events which were not delivered because a
+     * more recent move replaced them.
+     *
+     * @return  the number of coalesced move events
+     */
+    public long getCoalesced()
+    {
+        synchronized(this.pending) {
+            return this.coalesced;
+        }
+    }
+
+    public void gameStarted(GameEvent e)
+    {
+        this.post(e);
+    }
+
+    public void movePlayed(GameEvent e)
+    {
+        this.post(e);
+    }
+
+    public void gameOver(GameEvent e)
+    {
+        this.post(e);
+    }
+
+    /**
+     * Adds the specified event to the pending events, replacing the last one
+     * if both are moves of the same game, and submits a task to deliver them
+     * if there is not one already.
+     *
+     * @param   e   event to deliver
+     */
+    private void post(GameEvent e)
+    {
+        synchronized(this.pending) {
+            GameEvent last = this.pending.peekLast();
+            if (last != null && last.getType() == GameEvent.Type.MOVE_PLAYED
+                    && e.getType() == GameEvent.Type.MOVE_PLAYED
+                    && last.getSource() == e.getSource()) {
+                this.pending.pollLast();
+                this.coalesced++;
+            }
+            this.pending.addLast(e);
+
+            if (this.scheduled) {
+                return;
+            }
+            this.scheduled = true;
+        }
+
+        this.executor.execute(this.delivery);
+    }
+
+    /**
+     * Delivers events until there are none pending. If the listener throws an
+     * exception, the remaining events are delivered by another task.
+     */
+    private void deliverPending()
+    {
+        boolean done = false;
+        try {
+            while (true) {
+                GameEvent e;
+                synchronized(this.pending) {
+                    e = this.pending.pollFirst();
+                    if (e == null) {
+                        this.scheduled = false;
+                        done = true;
+                        return;
+                    }
+                }
+
+                switch (e.getType()) {
+                    case GAME_STARTED:
+                        this.listener.gameStarted(e);
+                        break;
+                    case MOVE_PLAYED:
+                        this.listener.movePlayed(e);
+                        break;
+                    case GAME_OVER:
+                        this.listener.gameOver(e);
+                        break;
+                }
+            }
+        } finally {
+            if (!done) {
+                this.executor.execute(this.delivery);
+            }
+        }
+    }
+}
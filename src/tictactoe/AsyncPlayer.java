@@ -0,0 +1,27 @@
+package tictactoe;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A player of TicTacToe which does not block the caller while it selects a
+ * move. Players which wait for input, such as a user clicking a button or a
+ * message from a network connection, can complete the move when it arrives
+ * without holding a thread while they wait.
+ * <p>
+ * A blocking {@link Player} can be used where an {@code AsyncPlayer} is
+ * needed with a {@link BlockingPlayerAdapter}.
+ *
+ * @author Todd Taomae
+ */
+public interface AsyncPlayer
+{
+    /**
+     * Returns a future which is completed with the selected move for the
+     * specified {@code Board}. It is the responsibility of the user to
+     * determine, if necessary, which player they are.
+     *
+     * @param   b   the board to select a move for, which the player may keep
+     * @return  a future of the selected move for the specified {@code Board}
+     */
+    public CompletableFuture<Integer> requestMove(Board b);
+}
@@ -0,0 +1,439 @@
+package tictactoe;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Finds the best move of each position in a stream of positions, in
+ * parallel, and writes the results in the order of the input.
+ * <p>
+ * Each position is one of:
+ * <ul>
+ * <li>the moves played from the empty board, separated by commas or spaces,
+ *     or {@code -} for the empty board;</li>
+ * <li>the board as written by {@link Board#toString()}: {@code X}, {@code O}
+ *     and {@code _} for each space, one row per line or with the rows on one
+ *     line separated by {@code /};</li>
+ * <li>{@code 0x} followed by the hexadecimal {@link Board#encode() encoding}
+ *     of the board.</li>
+ * </ul>
+ * Blank lines and lines starting with {@code #} are skipped. For each
+ * position one line is written with the number of the position, counting from
+ * one, the selected move and the value of the move for the player to move,
+ * separated by tabs. The value is {@code ?} if the player does not give one,
+ * and a position which cannot be read is written as an error.
+ * <p>
+ * Positions are read as they are needed, and at most a fixed number of
+ * positions per thread are being analyzed or waiting to be written at any
+ * time, so streams of any length are analyzed in constant memory. A new
+ * player is created for each position, with a random number generator seeded
+ * from the seed of the analyzer and the number of the position. If the
+ * players do not share state between positions, such as a transposition
+ * table, the output does not depend on the number of threads.
+ *
+ * @author Todd Taomae
+ */
+public class BatchAnalyzer
+{
+    /** Number of positions per thread that may be in progress at a time */
+    private static final int WINDOW_PER_THREAD = 64;
+
+    private Tournament.PlayerFactory engine;
+    private int rows;
+    private int cols;
+    private int k;
+    private int threads;
+    private long seed;
+
+    /**
+     * Constructs a new analyzer of positions on the standard 3x3 board which
+     * uses one thread for each available processor.
+     *
+     * @param   engine  factory for the player which selects the moves
+     */
+    public BatchAnalyzer(Tournament.PlayerFactory engine)
+    {
+        this.engine = engine;
+        this.rows = 3;
+        this.cols = 3;
+        this.k = 3;
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the shape of the board of the positions.
+     *
+     * @param   rows    number of rows of the board
+     * @param   cols    number of columns of the board
+     * @param   k       number of marks in a row needed to win
+     */
+    public void setBoardShape(int rows, int cols, int k)
+    {
+        // fail now rather than for every position
+        new Board(rows, cols, k);
+
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+    }
+
+    /**
+     * Sets the number of threads to analyze positions on.
+     *
+     * @param   threads     number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Sets the seed that the random number generator of each position is derived from.
+     *
+     * @param   seed    seed of the analyzer
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Analyzes every position read from the specified input and writes the
+     * results to the specified output. Neither stream is closed.
+     *
+     * @param   in      input to read positions from
+     * @param   out     output to write results to
+     * @return  the number of positions analyzed
+     * @throws  IOException if the input cannot be read or the output cannot be written.
+     * @throws  InterruptedException if the calling thread is interrupted.
+     */
+    public long analyze(Reader in, Writer out) throws IOException, InterruptedException
+    {
+        BufferedReader reader = new BufferedReader(in, 1 << 16);
+        ExecutorService workers = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "analyzer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        int window = this.threads * WINDOW_PER_THREAD;
+        long count = 0;
+
+        try {
+            String position;
+            while ((position = this.readPosition(reader)) != null) {
+                // write the oldest result before reading further ahead
+                if (pending.size() >= window) {
+                    write(pending.removeFirst(), out);
+                }
+
+                final long number = ++count;
+                final String text = position;
+                pending.addLast(workers.submit(new Callable<String>() {
+                    public String call() {
+                        return analyzePosition(number, text);
+                    }
+                }));
+            }
+
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst(), out);
+            }
+            out.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+
+        return count;
+    }
+
+    /**
+     * Waits for the specified result and writes it.
+     */
+    private static void write(Future<String> result, Writer out)
+        throws IOException, InterruptedException
+    {
+        try {
+            out.write(result.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("analysis failed", e.getCause());
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Reads the text of the next position, with the rows of a board joined by
+     * {@code /}, or returns {@code null} at the end of the input.
+     *
+     * @param   reader  input to read from
+     * @return  the text of the next position
+     * @throws  IOException if the input cannot be read.
+     */
+    private String readPosition(BufferedReader reader) throws IOException
+    {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            line = line.trim();
+        } while (line.isEmpty() || line.startsWith("#"));
+
+        if (!isRow(line) || line.indexOf('/') >= 0) {
+            return line;
+        }
+
+        // a board with one row per line
+        StringBuilder board = new StringBuilder(line);
+        for (int r = 1; r < this.rows; r++) {
+            reader.mark(1 << 12);
+            line = reader.readLine();
+            if (line == null || line.trim().isEmpty() || !isRow(line.trim())) {
+                // leave the line to be read as the next position
+                reader.reset();
+                break;
+            }
+            board.append('/').append(line.trim());
+        }
+
+        return board.toString();
+    }
+
+    /**
+     * Returns whether or not the specified line is made up of marks and
+     * blank spaces.
+     */
+    private static boolean isRow(String line)
+    {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c != 'X' && c != 'O' && c != '_' && c != '/') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Analyzes one position and returns its line of output.
+     *
+     * @param   number  number of the position
+     * @param   text    text of the position
+     * @return  the result line for the position
+     */
+    private String analyzePosition(long number, String text)
+    {
+        Board board;
+        try {
+            board = this.parse(text);
+        } catch (IllegalArgumentException e) {
+            return number + "\terror: " + e.getMessage();
+        }
+
+        if (board.getWinner() != Mark.NONE) {
+            return number + "\terror: game is over";
+        }
+
+        Player player = this.engine.newPlayer(new Random(this.seed + number));
+        int move;
+        String value = "?";
+        if (player instanceof AlphaBetaPlayer) {
+            SearchResult result = ((AlphaBetaPlayer)player).analyze(board);
+            move = result.getMove();
+            value = Integer.toString(result.getValue());
+        } else if (player instanceof TablebasePlayer) {
+            move = player.getMove(board);
+            value = Integer.toString(((TablebasePlayer)player).getValue(board));
+        } else {
+            move = player.getMove(board);
+        }
+
+        return number + "\t" + move + "\t" + value;
+    }
+
+    /**
+     * Returns a new {@code Board} with the position of the specified text.
+     *
+     * @param   text    moves, rows separated by {@code /} or an encoding
+     * @return  a board with the position
+     * @throws  IllegalArgumentException if the text is not a valid position.
+     */
+    Board parse(String text)
+    {
+        if (text.startsWith("0x")) {
+            return Board.decode((int)Long.parseLong(text.substring(2), 16),
+                                this.rows, this.cols, this.k);
+        } else if (isRow(text)) {
+            return this.parseRows(text.split("/"));
+        }
+
+        Board board = new Board(this.rows, this.cols, this.k);
+        if (text.equals("-")) {
+            return board;
+        }
+        try {
+            for (String move : text.split("[,\\s]+")) {
+                board.play(Integer.parseInt(move));
+            }
+        } catch (IllegalMoveException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+
+        return board;
+    }
+
+    /**
+     * Returns a new {@code Board} with the marks of the specified rows. The
+     * marks are played in increasing order of position, alternating between
+     * X and O.
+     *
+     * @param   lines   rows of the board
+     * @return  a board with the marks of the rows
+     * @throws  IllegalArgumentException if the rows do not fit the board or do
+     *              not have a valid number of marks of each player.
+     */
+    private Board parseRows(String[] lines)
+    {
+        if (lines.length != this.rows) {
+            throw new IllegalArgumentException("expected " + this.rows + " rows");
+        }
+
+        int size = this.rows * this.cols;
+        int[] xs = new int[size];
+        int[] os = new int[size];
+        int numX = 0;
+        int numO = 0;
+        for (int r = 0; r < this.rows; r++) {
+            if (lines[r].length() != this.cols) {
+                throw new IllegalArgumentException("expected " + this.cols + " columns");
+            }
+            for (int c = 0; c < this.cols; c++) {
+                char mark = lines[r].charAt(c);
+                if (mark == 'X') {
+                    xs[numX++] = r * this.cols + c;
+                } else if (mark == 'O') {
+                    os[numO++] = r * this.cols + c;
+                }
+            }
+        }
+        if (numX != numO && numX != numO + 1) {
+            throw new IllegalArgumentException("not a valid number of marks");
+        }
+
+        Board board = new Board(this.rows, this.cols, this.k);
+        for (int i = 0; i < numX; i++) {
+            board.makeMove(xs[i]);
+            if (i < numO) {
+                board.makeMove(os[i]);
+            }
+        }
+
+        return board;
+    }
+
+    /**
+     * Analyzes positions from a file, or standard input, and writes the
+     * results to a file, or standard output.
+     * <p>
+     * Usage: {@code BatchAnalyzer [options] [input [output]]}, where an input
+     * or output of {@code -} is standard input or output. Options:
+     * <ul>
+     * <li>{@code -shape RxCkK}: board shape, such as {@code 4x4k3}</li>
+     * <li>{@code -threads N}: number of threads</li>
+     * <li>{@code -depth N}: search depth of the alpha-beta engine</li>
+     * <li>{@code -algorithm A}: an {@link AlphaBetaPlayer.Algorithm}</li>
+     * <li>{@code -mcts N}: use an {@link MctsPlayer} with N playouts</li>
+     * <li>{@code -seed N}: seed of the analyzer</li>
+     * </ul>
+     *
+     * @param   args    command line arguments
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int[] shape = { 3, 3, 3 };
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = 9;
+        AlphaBetaPlayer.Algorithm algorithm = AlphaBetaPlayer.Algorithm.ALPHA_BETA;
+        int playouts = 0;
+        long seed = 0;
+        List<String> files = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-shape")) {
+                String[] parts = args[++i].split("[xk]");
+                for (int j = 0; j < 3; j++) {
+                    shape[j] = Integer.parseInt(parts[j]);
+                }
+            } else if (arg.equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-depth")) {
+                depth = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-algorithm")) {
+                algorithm = AlphaBetaPlayer.Algorithm.valueOf(args[++i]);
+            } else if (arg.equals("-mcts")) {
+                playouts = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-seed")) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                files.add(arg);
+            }
+        }
+
+        Tournament.PlayerFactory engine;
+        if (playouts > 0) {
+            final int n = playouts;
+            engine = new Tournament.PlayerFactory() {
+                public Player newPlayer(Random rng) {
+                    MctsPlayer p = new MctsPlayer(n);
+                    p.setRandom(rng);
+                    return p;
+                }
+            };
+        } else {
+            final int d = depth;
+            final AlphaBetaPlayer.Algorithm a = algorithm;
+            // a table kept between positions would make the values of a
+            // depth-limited search depend on the positions searched before
+            engine = new Tournament.PlayerFactory() {
+                public Player newPlayer(Random rng) {
+                    AlphaBetaPlayer p = new AlphaBetaPlayer(d, null);
+                    p.setRandom(rng);
+                    p.setAlgorithm(a);
+                    return p;
+                }
+            };
+        }
+
+        BatchAnalyzer analyzer = new BatchAnalyzer(engine);
+        analyzer.setBoardShape(shape[0], shape[1], shape[2]);
+        analyzer.setThreads(threads);
+        analyzer.setSeed(seed);
+
+        String input = files.size() > 0 ? files.get(0) : "-";
+        String output = files.size() > 1 ? files.get(1) : "-";
+        Reader in = input.equals("-") ? new InputStreamReader(System.in, "UTF-8")
+                                      : new InputStreamReader(new FileInputStream(input), "UTF-8");
+        Writer out = output.equals("-")
+                   ? new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"), 1 << 16)
+                   : new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output),
+                                                               "UTF-8"), 1 << 16);
+
+        long start = System.nanoTime();
+        long count;
+        try {
+            count = analyzer.analyze(in, out);
+        } finally {
+            in.close();
+            out.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d positions in %.3f s, %.0f positions/s%n",
+                          count, seconds, count / seconds);
+    }
+}
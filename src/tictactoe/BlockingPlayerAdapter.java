@@ -0,0 +1,48 @@
+package tictactoe;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Adapts a blocking {@link Player} to the {@link AsyncPlayer} interface by
+ * calling {@link Player#getMove(Board)} on an {@code Executor}.
+ *
+ * @author Todd Taomae
+ */
+public class BlockingPlayerAdapter implements AsyncPlayer
+{
+    private Player player;
+    private Executor executor;
+
+    /**
+     * Constructs a new adapter which selects the moves of the specified
+     * {@code Player} on the specified {@code Executor}.
+     *
+     * @param   player      player to adapt
+     * @param   executor    executor to call the player on
+     */
+    public BlockingPlayerAdapter(Player player, Executor executor)
+    {
+        this.player = player;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the adapted player.
+     *
+     * @return  the adapted player
+     */
+    public Player getPlayer()
+    {
+        return this.player;
+    }
+
+    public CompletableFuture<Integer> requestMove(final Board b)
+    {
+        return CompletableFuture.supplyAsync(new Supplier<Integer>() {
+            public Integer get() {
+                return player.getMove(b);
+            }
+        }, this.executor);
+    }
+}
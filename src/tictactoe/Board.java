@@ -1,12 +1,41 @@
 package tictactoe;
 
-import java.util.*;
+import java.util.Arrays;
 
 /**
  * Representation of a TicTacToe Board. X always goes first.
  * <p>
+ * A board has a number of rows and columns and a number of marks in a row,
+ * horizontally, vertically or diagonally, needed to win. The default board is
+ * the standard 3x3 board with three in a row to win.
+ * <p>
  * The spaces are indicated with a zero-based index starting at the top-left
  * proceeding right, then down.
+ * <p>
+ * Internally the board is stored as two packed bit sets, one for each player,
+ * where bit {@code i} is set if that player has a mark at space {@code i}.
+ * The winner is updated as each move is played by checking only the lines
+ * through that move.
+ * <p>
+ * Each board also maintains a Zobrist hash of its position which is updated
+ * incrementally as moves are played and taken back.
+ * <p>
+ * A square board has eight symmetries, numbered from {@code 0} to {@code 7}:
+ * the identity, rotations by 90, 180 and 270 degrees clockwise, and reflections
+ * across the vertical axis, the horizontal axis, the main diagonal and the
+ * anti-diagonal. Other boards have four: the identity, rotation by 180 degrees
+ * and reflections across the vertical and horizontal axes. The hash of the
+ * image of the position under each symmetry is also maintained, so that the
+ * canonical form of a position, the image with the smallest hash, can be found
+ * without copying the board.
+ * <p>
+ * Two boards are equal if they have the same shape and the same marks in the
+ * same spaces, regardless of the order the moves were played in. Since boards
+ * are mutable, a board should not be changed while it is a key of a map.
+ * <p>
+ * A board of at most {@link #MAX_ENCODED_SIZE} spaces can also be encoded
+ * into a single {@code int} with {@link #encode()}, for use as a key or
+ * index of primitive arrays; see also {@link PositionIndex}.
  *
  * @author Todd Taomae
  */
@@ -14,73 +43,133 @@ public class Board implements Cloneable
 {
     /** Value of an invalid move */
     public static final int INVALID_MOVE = -1;
+    /** Maximum number of spaces of a board which can be encoded into an {@code int} */
+    public static final int MAX_ENCODED_SIZE = 16;
+
     // class variables
-    private Mark[] board;
+    private Geometry geometry;
+    private long[] xBits;
+    private long[] oBits;
     private int turn;
+    private int[] history;
+    /** Number of moves that had been played when the game was won, or -1 */
+    private int winTurn;
+    /** Hash of the image of this position under each symmetry */
+    private long[] hashes;
 
     /**
-     * Creates a new, empty board
+     * Creates a new, empty 3x3 board
      */
     public Board()
     {
-        this.board = new Mark[9];
-        Arrays.fill(board, Mark.NONE);
+        this(3, 3, 3);
+    }
 
+    /**
+     * Creates a new, empty board with the specified number of rows and columns
+     * where the specified number of marks in a row are needed to win.
+     *
+     * @param   rows    number of rows
+     * @param   cols    number of columns
+     * @param   k       number of marks in a row needed to win
+     * @throws  IllegalArgumentException if the rows or columns are not positive,
+     *              if there are more than 65535 spaces, or if {@code k} is
+     *              not between 1 and the longer side.
+     */
+    public Board(int rows, int cols, int k)
+    {
+        this.geometry = Geometry.of(rows, cols, k);
+        this.xBits = new long[this.geometry.words];
+        this.oBits = new long[this.geometry.words];
         this.turn = 0;
+        this.history = new int[this.geometry.size];
+        this.winTurn = -1;
+        this.hashes = new long[this.geometry.symmetries.length];
     }
 
     /**
-     * Constructs a new {@code Board} from the specified initial state.
-     * Assumes that the initial state is valid.
+     * Constructs a copy of the specified {@code Board}.
      *
-     * @param   init    initial state
+     * @param   other   board to copy
      */
-    private Board (Mark[] init)
+    private Board(Board other)
     {
-        int t = 0;
-        this.board = new Mark[init.length];
+        this.geometry = other.geometry;
+        this.xBits = other.xBits.clone();
+        this.oBits = other.oBits.clone();
+        this.turn = other.turn;
+        this.history = other.history.clone();
+        this.winTurn = other.winTurn;
+        this.hashes = other.hashes.clone();
+    }
 
-        for (int i = 0; i < init.length; i++) {
-            this.board[i] = init[i];
-            if (init[i] == Mark.X || init[i] == Mark.O) {
-                t++;
-            }
-        }
-        this.turn = t;
+    /**
+     * Returns the number of rows of this board.
+     *
+     * @return  the number of rows of this board
+     */
+    public int getRows()
+    {
+        return this.geometry.rows;
     }
 
     /**
-     * Returns the winner of this board. Assumes that the board is valid.
+     * Returns the number of columns of this board.
      *
-     * @return  the winner of this Board
+     * @return  the number of columns of this board
      */
-    public Mark getWinner()
+    public int getColumns()
     {
-        Mark result = Mark.NONE;
+        return this.geometry.cols;
+    }
 
-        // if board is full, assume draw unless find winner
-        if (this.getTurn() == this.board.length) {
-            result = Mark.DRAW;
-        }
+    /**
+     * Returns the number of marks in a row needed to win on this board.
+     *
+     * @return  the number of marks in a row needed to win
+     */
+    public int getWinLength()
+    {
+        return this.geometry.k;
+    }
 
-        for (int i = 0; i < 3; i++) {
-            // check horizontal
-            if (board[i*3 + 0] == board[i*3 + 1] && board[i*3 + 1] == board[i*3 + 2]) {
-                result = board[i*3 + 0];
-            }
-            // check vertical
-            else if (board[0 + i] == board[3+i] && board[3+i] == board[6+i]) {
-                result = board[0 + i];
-            }
-        }
+    /**
+     * Returns the number of spaces on this board.
+     *
+     * @return  the number of spaces on this board
+     */
+    public int getSize()
+    {
+        return this.geometry.size;
+    }
 
-        // check diaganols
-        if ((board[0] == board[4] && board[4] == board[8])
-            || (board[2] == board[4] && board[4] == board[6])) {
-            result = board[4];
-        }
+    /**
+     * Returns whether or not this board has the same shape and win length as
+     * the specified board.
+     *
+     * @param   other   board to compare to
+     * @return  {@code true} if both boards have the same shape and win length
+     */
+    public boolean isSameShape(Board other)
+    {
+        return this.geometry == other.geometry;
+    }
 
-        return result;
+    /**
+     * Returns the winner of this board. Assumes that the board is valid.
+     *
+     * @return  the winner of this Board
+     */
+    public Mark getWinner()
+    {
+        if (this.winTurn >= 0) {
+            // X plays the odd numbered moves
+            return (this.winTurn & 1) == 1 ? Mark.X : Mark.O;
+        } else if (this.turn == this.geometry.size) {
+            return Mark.DRAW;
+        } else {
+            return Mark.NONE;
+        }
     }
 
     /**
@@ -93,14 +182,227 @@ public class Board implements Cloneable
      */
     public void play(int move) throws IllegalMoveException
     {
-        if (move < 0 || move >= this.board.length) {
-            throw new IllegalArgumentException("move = " + move + ": must be between 0 and 8");
-        } else if (this.board[move] != Mark.NONE) {
+        if (move < 0 || move >= this.geometry.size) {
+            throw new IllegalArgumentException("move = " + move + ": must be between 0 and "
+                                               + (this.geometry.size - 1));
+        }
+
+        if (isSet(this.xBits, move) || isSet(this.oBits, move)) {
             throw new IllegalMoveException("space " + move + " is already occupied.");
         } else {
-            this.board[move] = this.getCurrentPlayer();
-            this.turn++;
+            this.makeMove(move);
+        }
+    }
+
+    /**
+     * Plays the specified move on this board without checking that it is legal.
+     * Intended for search code which only generates moves from
+     * {@link #getLegalMoves(int[])}.
+     *
+     * @param   move    position of move to play
+     */
+    void makeMove(int move)
+    {
+        long[] bits = (this.turn & 1) == 0 ? this.xBits : this.oBits;
+        bits[move >>> 6] |= 1L << move;
+        this.updateHashes(move);
+        this.history[this.turn++] = move;
+
+        if (this.winTurn < 0 && this.completesLine(bits, move)) {
+            this.winTurn = this.turn;
+        }
+    }
+
+    /**
+     * Takes back the most recently played move on this board.
+     *
+     * @return  the position of the move that was taken back
+     * @throws  IllegalStateException if no moves have been played.
+     */
+    public int undo()
+    {
+        if (this.turn == 0) {
+            throw new IllegalStateException("no moves to undo");
+        }
+
+        if (this.winTurn == this.turn) {
+            this.winTurn = -1;
+        }
+
+        int move = this.history[--this.turn];
+        long clear = ~(1L << move);
+        this.xBits[move >>> 6] &= clear;
+        this.oBits[move >>> 6] &= clear;
+        this.updateHashes(move);
+
+        return move;
+    }
+
+    /**
+     * Returns whether or not the specified player would complete a line by
+     * playing at the specified empty space. Intended for move ordering.
+     *
+     * @param   move    position of the move
+     * @param   player  player to check for
+     * @return  {@code true} if the move would win the game for the player
+     */
+    boolean isWinningMove(int move, Mark player)
+    {
+        return this.completesLine(player == Mark.X ? this.xBits : this.oBits, move);
+    }
+
+    /**
+     * Returns whether or not the specified bits, with the specified space
+     * added, contain a complete line through that space.
+     *
+     * @param   bits    bits of the player who played the move
+     * @param   move    position of the move
+     * @return  {@code true} if there is a complete line through the move
+     */
+    private boolean completesLine(long[] bits, int move)
+    {
+        Geometry g = this.geometry;
+
+        // boards which fit in one word have a mask for each line
+        if (g.lineMasks != null) {
+            long word = bits[0] | (1L << move);
+            for (int line : g.cellLines[move]) {
+                long mask = g.lineMasks[line];
+                if ((word & mask) == mask) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // otherwise count the marks in a row in each direction
+        int row = move / g.cols;
+        int col = move % g.cols;
+        return countLine(bits, row, col, 0, 1) >= g.k
+            || countLine(bits, row, col, 1, 0) >= g.k
+            || countLine(bits, row, col, 1, 1) >= g.k
+            || countLine(bits, row, col, 1, -1) >= g.k;
+    }
+
+    /**
+     * Returns the number of consecutive marks in the specified bits along the
+     * specified direction, in both senses, through the specified space.
+     */
+    private int countLine(long[] bits, int row, int col, int dr, int dc)
+    {
+        Geometry g = this.geometry;
+        int count = 1;
+
+        for (int r = row + dr, c = col + dc;
+             r >= 0 && r < g.rows && c >= 0 && c < g.cols && isSet(bits, r*g.cols + c);
+             r += dr, c += dc) {
+            count++;
+        }
+        for (int r = row - dr, c = col - dc;
+             r >= 0 && r < g.rows && c >= 0 && c < g.cols && isSet(bits, r*g.cols + c);
+             r -= dr, c -= dc) {
+            count++;
+        }
+
+        return count;
+    }
+
+    private static boolean isSet(long[] bits, int pos)
+    {
+        return (bits[pos >>> 6] & (1L << pos)) != 0;
+    }
+
+    /**
+     * Toggles the mark of the current player at the specified position in the
+     * hash of each symmetric image.
+     *
+     * @param   move    position of the mark
+     */
+    private void updateHashes(int move)
+    {
+        long[] keys = this.geometry.zobrist[this.turn & 1];
+        int[][] symmetries = this.geometry.symmetries;
+        for (int t = 0; t < symmetries.length; t++) {
+            this.hashes[t] ^= keys[symmetries[t][move]];
+        }
+    }
+
+    /**
+     * Stores the position of every empty space, in increasing order, into the
+     * specified array and returns the number of empty spaces. The array may be
+     * reused between calls so that no allocation is necessary.
+     *
+     * @param   moves   array to store the moves in; must have room for at least
+     *                  {@link #getSize()} moves
+     * @return  the number of legal moves stored in {@code moves}
+     */
+    public int getLegalMoves(int[] moves)
+    {
+        int count = 0;
+
+        for (int w = 0; w < this.xBits.length; w++) {
+            long empty = ~(this.xBits[w] | this.oBits[w]);
+            // clear the bits past the last space
+            int remaining = this.geometry.size - (w << 6);
+            if (remaining < 64) {
+                empty &= (1L << remaining) - 1;
+            }
+
+            while (empty != 0) {
+                moves[count++] = (w << 6) + Long.numberOfTrailingZeros(empty);
+                empty &= empty - 1;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Stores one move from each set of moves which lead to symmetric positions
+     * into the specified array and returns the number of moves stored. The
+     * lowest position of each set is the one that is stored.
+     *
+     * @param   moves   array to store the moves in; must have room for at least
+     *                  {@link #getSize()} moves
+     * @return  the number of distinct moves stored in {@code moves}
+     */
+    public int getDistinctMoves(int[] moves)
+    {
+        int count = this.getLegalMoves(moves);
+        int symmetries = this.getSymmetries() & ~1;
+        if (symmetries == 0) {
+            return count;
+        }
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (this.getRepresentative(moves[i], symmetries) == moves[i]) {
+                moves[distinct++] = moves[i];
+            }
+        }
+
+        return distinct;
+    }
+
+    /**
+     * Returns the lowest position that the specified move is mapped to by the
+     * specified symmetries. Playing the result leads to a position symmetric to
+     * playing the move itself if the symmetries are symmetries of this position.
+     *
+     * @param   move        position of the move
+     * @param   symmetries  bitmask of symmetries, as returned by {@link #getSymmetries()}
+     * @return  the lowest image of the move
+     */
+    public int getRepresentative(int move, int symmetries)
+    {
+        int result = move;
+        while (symmetries != 0) {
+            int t = Integer.numberOfTrailingZeros(symmetries);
+            result = Math.min(result, this.geometry.symmetries[t][move]);
+            symmetries &= symmetries - 1;
         }
+
+        return result;
     }
 
     /**
@@ -113,6 +415,183 @@ public class Board implements Cloneable
         return this.turn;
     }
 
+    /**
+     * Returns the most recently played move on this board.
+     *
+     * @return  the most recently played move, or {@link #INVALID_MOVE} if no
+     *          moves have been played
+     */
+    public int getLastMove()
+    {
+        return this.turn == 0 ? INVALID_MOVE : this.history[this.turn - 1];
+    }
+
+    /**
+     * Returns the move played on the specified turn, counting from zero.
+     *
+     * @param   turn    turn of the move
+     * @return  the position of the move played on the turn
+     * @throws  IndexOutOfBoundsException if the turn has not been played.
+     */
+    public int getMove(int turn)
+    {
+        if (turn < 0 || turn >= this.turn) {
+            throw new IndexOutOfBoundsException("turn = " + turn + ": must be between 0 and "
+                                                + (this.turn - 1));
+        }
+
+        return this.history[turn];
+    }
+
+    /**
+     * Returns the Zobrist hash of the current position of this board. Boards
+     * with the same marks in the same spaces always have the same hash.
+     *
+     * @return  the Zobrist hash of this board
+     */
+    public long getHash()
+    {
+        return this.hashes[0];
+    }
+
+    /**
+     * Returns the Zobrist hash of the image of this position under the
+     * specified symmetry.
+     *
+     * @param   symmetry    index of the symmetry
+     * @return  the hash of the image of this position under the symmetry
+     */
+    public long getHash(int symmetry)
+    {
+        return this.hashes[symmetry];
+    }
+
+    /**
+     * Returns the number of symmetries of this board, which is eight for a
+     * square board and four otherwise.
+     *
+     * @return  the number of symmetries of this board
+     */
+    public int getSymmetryCount()
+    {
+        return this.hashes.length;
+    }
+
+    /**
+     * Returns the index of the symmetry which maps this position to its
+     * canonical form. If the position is itself symmetric, several symmetries
+     * may map it to its canonical form; the lowest index is returned.
+     *
+     * @return  the index of the symmetry which maps this position to its canonical form
+     */
+    public int getCanonicalTransform()
+    {
+        int result = 0;
+        for (int t = 1; t < this.hashes.length; t++) {
+            if (this.hashes[t] < this.hashes[result]) {
+                result = t;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the hash of the canonical form of this position. All positions
+     * which are symmetric to each other have the same canonical hash.
+     *
+     * @return  the hash of the canonical form of this position
+     */
+    public long getCanonicalHash()
+    {
+        return this.hashes[this.getCanonicalTransform()];
+    }
+
+    /**
+     * Returns a new {@code Board} holding the canonical form of this position,
+     * reached by playing the moves of this board mapped by the canonical symmetry.
+     *
+     * @return  the canonical form of this board
+     */
+    public Board canonical()
+    {
+        int[] map = this.geometry.symmetries[this.getCanonicalTransform()];
+        Board result = new Board(this.geometry.rows, this.geometry.cols, this.geometry.k);
+        for (int i = 0; i < this.turn; i++) {
+            result.makeMove(map[this.history[i]]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a bitmask of the symmetries which map this position to itself,
+     * where bit {@code t} is set if symmetry {@code t} does. Bit {@code 0}
+     * (the identity) is always set.
+     *
+     * @return  bitmask of the symmetries of this position
+     */
+    public int getSymmetries()
+    {
+        int result = 1;
+        for (int t = 1; t < this.hashes.length; t++) {
+            // equal hashes are only a hint; confirm with the bits
+            if (this.hashes[t] == this.hashes[0]
+                && this.isFixedBy(this.xBits, t)
+                && this.isFixedBy(this.oBits, t)) {
+                result |= 1 << t;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns whether or not every mark in the specified bits is mapped to
+     * another mark in the bits by the specified symmetry.
+     */
+    private boolean isFixedBy(long[] bits, int symmetry)
+    {
+        int[] map = this.geometry.symmetries[symmetry];
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                if (!isSet(bits, map[(w << 6) + Long.numberOfTrailingZeros(word)])) {
+                    return false;
+                }
+                word &= word - 1;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the position that the specified position is mapped to by the
+     * specified symmetry.
+     *
+     * @param   pos         position to map
+     * @param   symmetry    index of the symmetry
+     * @return  the image of the position
+     */
+    public int transform(int pos, int symmetry)
+    {
+        return this.geometry.symmetries[symmetry][pos];
+    }
+
+    /**
+     * Returns the position that is mapped to the specified position by the
+     * specified symmetry.
+     *
+     * @param   pos         position to map
+     * @param   symmetry    index of the symmetry
+     * @return  the preimage of the position
+     */
+    public int inverseTransform(int pos, int symmetry)
+    {
+        return this.geometry.inverseSymmetries[symmetry][pos];
+    }
+
     /**
      * Returns the {@code Mark} for the current turn.
      *
@@ -120,11 +599,7 @@ public class Board implements Cloneable
      */
     public Mark getCurrentPlayer()
     {
-        if (this.turn % 2 == 0) {
-            return Mark.X;
-        } else {
-            return Mark.O;
-        }
+        return (this.turn & 1) == 0 ? Mark.X : Mark.O;
     }
 
     /**
@@ -136,10 +611,16 @@ public class Board implements Cloneable
      */
     public Mark markAt(int pos)
     {
-        if (pos < 0 || pos >= this.board.length) {
+        if (pos < 0 || pos >= this.geometry.size) {
             throw new IllegalArgumentException();
+        }
+
+        if (isSet(this.xBits, pos)) {
+            return Mark.X;
+        } else if (isSet(this.oBits, pos)) {
+            return Mark.O;
         } else {
-            return this.board[pos];
+            return Mark.NONE;
         }
     }
 
@@ -150,7 +631,108 @@ public class Board implements Cloneable
      */
     public Object clone()
     {
-        return new Board(this.board);
+        return new Board(this);
+    }
+
+    /**
+     * Returns the marks of this board packed into an {@code int}. Bit {@code i}
+     * is set if X has a mark in space {@code i}, and bit {@code 16 + i} is set
+     * if O has a mark in space {@code i}.
+     *
+     * @return  the encoding of this board
+     * @throws  IllegalStateException if this board has more than
+     *              {@link #MAX_ENCODED_SIZE} spaces.
+     */
+    public int encode()
+    {
+        if (this.geometry.size > MAX_ENCODED_SIZE) {
+            throw new IllegalStateException("only boards of at most " + MAX_ENCODED_SIZE
+                                            + " spaces can be encoded");
+        }
+
+        return (int)this.xBits[0] | ((int)this.oBits[0] << 16);
+    }
+
+    /**
+     * Returns a new board of the specified shape with the marks of the
+     * specified encoding. The marks are played in increasing order of position,
+     * alternating between X and O, so the move history of the new board may
+     * differ from that of the encoded board.
+     *
+     * @param   code    encoding returned by {@link #encode()}
+     * @param   rows    number of rows
+     * @param   cols    number of columns
+     * @param   k       number of marks in a row needed to win
+     * @return  a board with the marks of the encoding
+     * @throws  IllegalArgumentException if the shape is not valid or has more
+     *              than {@link #MAX_ENCODED_SIZE} spaces, or if the encoding
+     *              does not have a valid number of marks of each player
+     *              within the board.
+     */
+    public static Board decode(int code, int rows, int cols, int k)
+    {
+        Board board = new Board(rows, cols, k);
+        int size = board.geometry.size;
+        if (size > MAX_ENCODED_SIZE) {
+            throw new IllegalArgumentException("only boards of at most " + MAX_ENCODED_SIZE
+                                               + " spaces can be encoded");
+        }
+
+        int x = code & 0xFFFF;
+        int o = code >>> 16;
+        int xCount = Integer.bitCount(x);
+        int oCount = Integer.bitCount(o);
+        if ((x & o) != 0 || ((x | o) >>> size) != 0
+            || (xCount != oCount && xCount != oCount + 1)) {
+            throw new IllegalArgumentException("code = " + Integer.toHexString(code)
+                                               + ": not a valid position");
+        }
+
+        while ((x | o) != 0) {
+            int marks = (board.turn & 1) == 0 ? x : o;
+            int move = Integer.numberOfTrailingZeros(marks);
+            board.makeMove(move);
+            if ((board.turn & 1) == 1) {
+                x &= x - 1;
+            } else {
+                o &= o - 1;
+            }
+        }
+
+        return board;
+    }
+
+    /**
+     * Returns whether or not the specified object is a board of the same shape
+     * with the same marks in the same spaces.
+     *
+     * @param   obj     object to compare to
+     * @return  {@code true} if the object is an equal board
+     */
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof Board)) {
+            return false;
+        }
+
+        Board other = (Board)obj;
+        return this.geometry == other.geometry
+            && Arrays.equals(this.xBits, other.xBits)
+            && Arrays.equals(this.oBits, other.oBits);
+    }
+
+    /**
+     * Returns a hash code of the marks of this board, derived from its
+     * Zobrist hash.
+     *
+     * @return  a hash code of this board
+     */
+    public int hashCode()
+    {
+        long hash = this.hashes[0];
+        return (int)(hash ^ (hash >>> 32));
     }
 
     /**
@@ -160,27 +742,37 @@ public class Board implements Cloneable
      */
     public String toString()
     {
-        String result = "";
+        int size = this.geometry.size;
+        StringBuilder result = new StringBuilder(size + this.geometry.rows);
 
-        for (int i = 0; i < this.board.length; i++) {
-            if (i > 0 && i % 3  == 0) {
-                result += "\n";
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && i % this.geometry.cols == 0) {
+                result.append('\n');
             }
 
-            switch (this.board[i]) {
+            switch (this.markAt(i)) {
                 case X:
-                    result += "X";
+                    result.append('X');
                     break;
                 case O:
-                    result += "O";
+                    result.append('O');
                     break;
-                case NONE:
-                    result += "_";
+                default:
+                    result.append('_');
                     break;
             }
-
         }
 
-        return result;
+        return result.toString();
+    }
+
+    /**
+     * Returns the shared tables for the shape of this board.
+     *
+     * @return  the geometry of this board
+     */
+    Geometry getGeometry()
+    {
+        return this.geometry;
     }
 }
@@ -1,11 +1,24 @@
 package tictactoe;
 
-import java.util.Scanner;
+import java.io.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 
 /**
  * The driver of a TicTacToe Game. Each driver will only play one game
  * <p>
- * Can be run as a {@code Thread}.
+ * Games are played on a standard 3x3 board unless another shape is given
+ * when the driver is constructed.
+ * <p>
+ * Can be run as a {@code Thread}, or played without a dedicated thread with
+ * {@link #playAsync(Executor)}, which lets many games share a small pool of
+ * threads. Players which implement {@link AsyncPlayer} do not hold a thread
+ * while waiting for their move.
+ * <p>
+ * The progress of each game can be followed by adding a {@link GameListener},
+ * which is told when the game starts, after each move, and when the game is
+ * over.
  *
  * @author Todd Taomae
  */
@@ -14,6 +27,11 @@ public class Driver implements Runnable
     private Player playerX;
     private Player playerO;
     private Board board;
+    private int rows;
+    private int cols;
+    private int k;
+    private GameRecordWriter recorder;
+    private List<GameListener> listeners;
 
     /**
      * Constructs a new {@code Driver} with the specified {@code Player}s.
@@ -22,22 +40,66 @@ public class Driver implements Runnable
      * @param o     the O {@code Player}.
      */
     public Driver(Player x, Player o)
+    {
+        this(x, o, 3, 3, 3);
+    }
+
+    /**
+     * Constructs a new {@code Driver} with the specified {@code Player}s which
+     * plays on boards of the specified shape.
+     *
+     * @param x     the X {@code Player}.
+     * @param o     the O {@code Player}.
+     * @param rows  number of rows of the board
+     * @param cols  number of columns of the board
+     * @param k     number of marks in a row needed to win
+     * @throws  IllegalArgumentException if the shape is not valid.
+     */
+    public Driver(Player x, Player o, int rows, int cols, int k)
     {
         this.playerX = x;
         this.playerO = o;
-        this.board = new Board();
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+        this.board = new Board(rows, cols, k);
+        this.listeners = new CopyOnWriteArrayList<GameListener>();
+    }
+
+    /**
+     * Adds a listener which is told about the events of each game played by
+     * this driver. Events are delivered on the thread playing the game; a
+     * listener which should not hold up the game can be wrapped in an
+     * {@link AsyncGameListener}. Listeners may be added or removed at any time.
+     *
+     * @param   listener    listener to add
+     */
+    public void addGameListener(GameListener listener)
+    {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes the specified listener from this driver.
+     *
+     * @param   listener    listener to remove
+     */
+    public void removeGameListener(GameListener listener)
+    {
+        this.listeners.remove(listener);
     }
 
     /**
      * Plays one match of TicTacToe on a new {@code Board}.
      * <p>
-     * Notifies all threads synchronized on this object after each turn is played.
+     * Listeners are told about the events of the game on the calling thread.
      *
      * @param   print   whether or not the status of the game should be printed.
      */
     public void playGame(boolean print)
     {
-        this.board = new Board();
+        this.board = new Board(this.rows, this.cols, this.k);
+        this.fireEvent(GameEvent.Type.GAME_STARTED);
 
         // loop until there is a winner
         while (this.board.getWinner() == Mark.NONE) {
@@ -49,18 +111,7 @@ public class Driver implements Runnable
                 move = this.playerO.getMove((Board)this.board.clone());
             }
 
-            try {
-                // notify all threads that a move has been played
-                synchronized(this) {
-                    this.board.play(move);
-                    this.notifyAll();
-                }
-
-            } catch (IllegalMoveException e) {
-                System.err.println("Player " + this.board.getCurrentPlayer()
-                                 + " has performed an illegal move!");
-                // do nothing, let player try again
-            }
+            this.applyMove(move);
 
             // print curent state
             if (print) {
@@ -68,12 +119,162 @@ public class Driver implements Runnable
             }
         }
 
+        this.fireEvent(GameEvent.Type.GAME_OVER);
+        this.record();
+
         // print winner
         if (print) {
             System.out.println("Winner is " + this.board.getWinner());
         }
     }
 
+    /**
+     * Starts one match of TicTacToe on a new {@code Board} and returns without
+     * waiting for it to finish. Each move is requested from the player, and
+     * played when it arrives, on the specified {@code Executor}. Players which
+     * do not implement {@link AsyncPlayer} are called on the executor with a
+     * {@link BlockingPlayerAdapter}.
+     * <p>
+     * Any executor may be used, such as a thread pool shared by many games,
+     * or, on Java 21 or later, one which starts a virtual thread per task.
+     * Listeners are told about the events of the game on the executor, except
+     * for the start of the game, which is delivered on the calling thread.
+     *
+     * @param   executor    executor to play the game on
+     * @return  a future which is completed with the winner of the game
+     */
+    public CompletableFuture<Mark> playAsync(Executor executor)
+    {
+        this.board = new Board(this.rows, this.cols, this.k);
+        CompletableFuture<Mark> result = new CompletableFuture<Mark>();
+        this.fireEvent(GameEvent.Type.GAME_STARTED);
+        this.nextTurn(asAsync(this.playerX, executor), asAsync(this.playerO, executor),
+                      executor, result);
+
+        return result;
+    }
+
+    /**
+     * Requests the next move of an asynchronous game, or completes the game
+     * if there is a winner.
+     *
+     * @param   x           the X player
+     * @param   o           the O player
+     * @param   executor    executor to play the game on
+     * @param   result      future to complete with the winner
+     */
+    private void nextTurn(final AsyncPlayer x, final AsyncPlayer o,
+                          final Executor executor, final CompletableFuture<Mark> result)
+    {
+        Mark winner = this.board.getWinner();
+        if (winner != Mark.NONE) {
+            try {
+                this.fireEvent(GameEvent.Type.GAME_OVER);
+                this.record();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            result.complete(winner);
+            return;
+        }
+
+        AsyncPlayer player = this.board.getCurrentPlayer() == Mark.X ? x : o;
+        CompletableFuture<Integer> move;
+        try {
+            move = player.requestMove((Board)this.board.clone());
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        // continue on the executor so that the stack does not grow with each turn
+        move.whenCompleteAsync(new BiConsumer<Integer, Throwable>() {
+            public void accept(Integer m, Throwable t) {
+                if (t != null) {
+                    result.completeExceptionally(t);
+                    return;
+                }
+                try {
+                    applyMove(m);
+                } catch (RuntimeException e) {
+                    // a move outside of the board, or a failed listener,
+                    // ends the game, as in playGame()
+                    result.completeExceptionally(e);
+                    return;
+                }
+                nextTurn(x, o, executor, result);
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns the specified player as an {@code AsyncPlayer}, adapting it if
+     * it only implements the blocking interface.
+     *
+     * @param   player      player to adapt
+     * @param   executor    executor to call a blocking player on
+     * @return  an asynchronous version of the player
+     */
+    private static AsyncPlayer asAsync(Player player, Executor executor)
+    {
+        if (player instanceof AsyncPlayer) {
+            return (AsyncPlayer)player;
+        }
+
+        return new BlockingPlayerAdapter(player, executor);
+    }
+
+    /**
+     * Plays the specified move on the current board and tells the listeners.
+     * A move on an occupied space is reported and ignored, so that the player
+     * is asked again.
+     *
+     * @param   move    position of the move
+     * @throws  IllegalArgumentException if the move is not on the board.
+     */
+    private void applyMove(int move)
+    {
+        try {
+            this.board.play(move);
+        } catch (IllegalMoveException e) {
+            System.err.println("Player " + this.board.getCurrentPlayer()
+                             + " has performed an illegal move!");
+            // do nothing, let player try again
+            return;
+        }
+
+        this.fireEvent(GameEvent.Type.MOVE_PLAYED);
+    }
+
+    /**
+     * Delivers an event of the specified type, with a copy of the current
+     * board, to each listener. Nothing is copied if there are no listeners.
+     *
+     * @param   type    type of the event
+     */
+    private void fireEvent(GameEvent.Type type)
+    {
+        if (this.listeners.isEmpty()) {
+            return;
+        }
+
+        GameEvent e = new GameEvent(this, type, (Board)this.board.clone());
+        for (GameListener listener : this.listeners) {
+            switch (type) {
+                case GAME_STARTED:
+                    listener.gameStarted(e);
+                    break;
+                case MOVE_PLAYED:
+                    listener.movePlayed(e);
+                    break;
+                case GAME_OVER:
+                    listener.gameOver(e);
+                    break;
+            }
+        }
+    }
+
     /**
      * Starts the {@code playGame()} method without printing.
      */
@@ -83,7 +284,8 @@ public class Driver implements Runnable
     }
 
     /**
-     * Returns the winner of the current game.
+     * Returns the winner of the current game. While a game is being played on
+     * another thread, a {@link GameListener} should be used instead.
      *
      * @return  the winner of the current game.
      */
@@ -94,14 +296,17 @@ public class Driver implements Runnable
 
     /**
      * Returns the state of the current game as a 1-D array of {@code Mark}s
-     * with indices corresponding to those of the {@code Board} class.
+     * with indices corresponding to those of the {@code Board} class. While a
+     * game is being played on another thread, a {@link GameListener} should be
+     * used instead.
+     *
      * @return     the state of the current game.
      */
     public Mark[] getState()
     {
-        Mark[] result = new Mark[9];
+        Mark[] result = new Mark[this.board.getSize()];
 
-        for (int i = 0; i < 9; i++) {
+        for (int i = 0; i < result.length; i++) {
             result[i] = this.board.markAt(i);
         }
 
@@ -128,12 +333,40 @@ public class Driver implements Runnable
         this.playerO = o;
     }
 
+    /**
+     * Sets the writer that each finished game is written to. The writer may be
+     * shared with other drivers.
+     *
+     * @param   recorder    writer to record games with, or {@code null} to
+     *                      not record games
+     */
+    public void setRecorder(GameRecordWriter recorder)
+    {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Writes the current game to the recorder, if there is one.
+     *
+     * @throws  UncheckedIOException if the game cannot be written.
+     */
+    private void record()
+    {
+        if (this.recorder != null) {
+            try {
+                this.recorder.write(this.board);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
     /**
      * Creates a new board for this driver. It is the responsibility of the user
      * ensure that the driver is not in the middle of a game.
      */
     public void newBoard()
     {
-        this.board = new Board();
+        this.board = new Board(this.rows, this.cols, this.k);
     }
 }
@@ -0,0 +1,65 @@
+package tictactoe;
+
+/**
+ * Estimates the value of a position which is not over, for use at the leaves
+ * of a depth-limited search.
+ * <p>
+ * An evaluator may keep state about the board which is updated as moves are
+ * played and taken back during the search, so that each evaluation does not
+ * need to look at the whole board. The search calls {@link #reset(Board)}
+ * before it starts, {@link #played(Board, int)} after each move is made and
+ * {@link #undone(Board, int)} before each move is taken back. Since each
+ * thread of a parallel search needs its own state, the search uses
+ * {@link #copy()} to create an evaluator for each thread.
+ *
+ * @author Todd Taomae
+ */
+public interface Evaluator
+{
+    /**
+     * Maximum absolute value returned by {@link #evaluate(Board, Mark)}. Values
+     * of won and lost positions are further from zero than any evaluation.
+     */
+    public static final int MAX_VALUE = 1000;
+
+    /**
+     * Sets up the state of this evaluator for the specified {@code Board}.
+     *
+     * @param   b   board which will be evaluated
+     */
+    public void reset(Board b);
+
+    /**
+     * Updates the state of this evaluator after a move has been played.
+     *
+     * @param   b       board the move was played on
+     * @param   move    position of the move
+     */
+    public void played(Board b, int move);
+
+    /**
+     * Updates the state of this evaluator before a move is taken back.
+     *
+     * @param   b       board the move will be taken back from, still
+     *                  containing the move
+     * @param   move    position of the move
+     */
+    public void undone(Board b, int move);
+
+    /**
+     * Returns the estimated value of the specified {@code Board} for the
+     * specified player, between {@code -MAX_VALUE} and {@code MAX_VALUE}.
+     *
+     * @param   b       board to evaluate
+     * @param   player  player whose point of view the value is from
+     * @return  the estimated value of the board
+     */
+    public int evaluate(Board b, Mark player);
+
+    /**
+     * Returns a new evaluator of the same kind, with its own state.
+     *
+     * @return  a new evaluator
+     */
+    public Evaluator copy();
+}
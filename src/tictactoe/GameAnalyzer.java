@@ -0,0 +1,502 @@
+package tictactoe;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Replays a stream of games, searches the position before every move, and
+ * flags the moves which made the result of the game worse for the player who
+ * made them.
+ * <p>
+ * A move is a mistake if it changes the value of the position from a win to
+ * a draw or a loss, or from a draw to a loss, for the player who made it. If
+ * the search reaches the end of the game these values are exact; otherwise
+ * a position which is neither won nor lost within the search depth counts as
+ * a draw. A move which keeps the value but gives up at least half of the
+ * difference between the best and the worst move that keep it is an
+ * inaccuracy, so the judgement does not depend on the scale of the
+ * heuristic values, which grows with the size of the board. A fixed
+ * threshold can be set instead. Positions which the search player answers
+ * without a search, such as the first move of a 3x3 game, are not judged.
+ * <p>
+ * For each move one line is written with the number of the game and the
+ * turn, counting from one and zero, the move, its value, the best move and
+ * its value, and the judgement: {@code ok}, {@code inaccuracy},
+ * {@code mistake} or {@code ?}, separated by tabs. Games are analyzed in
+ * parallel and written in the order they are read, and at most a fixed number
+ * of games per thread are in progress at a time, so streams of any length are
+ * analyzed in constant memory.
+ * <p>
+ * Every search shares one {@link TranspositionTable}, one {@link Evaluator}
+ * and the {@link MoveCache#getShared() shared move cache}, so the later
+ * positions of a game reuse the search of the earlier ones, and openings
+ * which are common to many games are only searched once.
+ *
+ * @author Todd Taomae
+ */
+public class GameAnalyzer
+{
+    /** Number of games per thread that may be in progress at a time */
+    private static final int WINDOW_PER_THREAD = 16;
+
+    private int depth;
+    private TranspositionTable table;
+    private Evaluator evaluator;
+    private MoveCache cache;
+    private int threshold;
+    private int threads;
+    private long seed;
+
+    /**
+     * Constructs a new analyzer which searches to the specified depth and
+     * uses one thread for each available processor.
+     *
+     * @param   depth   maximum search depth
+     */
+    public GameAnalyzer(int depth)
+    {
+        this.depth = depth;
+        this.table = new TranspositionTable(16);
+        this.evaluator = new LinePotentialEvaluator();
+        this.cache = MoveCache.getShared();
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the heuristic loss at which a move which keeps the value of the
+     * position is flagged as an inaccuracy, in place of half of the
+     * difference between the best and the worst move of the position. A
+     * threshold of {@code 0} restores the default.
+     *
+     * @param   threshold   smallest loss of an inaccuracy, or {@code 0}
+     */
+    public void setInaccuracyThreshold(int threshold)
+    {
+        this.threshold = Math.max(threshold, 0);
+    }
+
+    /**
+     * Sets the number of threads to analyze games on.
+     *
+     * @param   threads     number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Sets the seed that the random number generator of each game is derived
+     * from, which chooses between equally good best moves.
+     *
+     * @param   seed    seed of the analyzer
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Analyzes every game read from the specified reader and writes the
+     * annotations to the specified output. Neither stream is closed.
+     *
+     * @param   in      reader of the games
+     * @param   out     output to write annotations to
+     * @return  the totals of the analysis
+     * @throws  IOException if the games cannot be read or the output cannot be written.
+     * @throws  InterruptedException if the calling thread is interrupted.
+     */
+    public Result analyze(final GameRecordReader in, Writer out)
+        throws IOException, InterruptedException
+    {
+        return this.analyze(new GameSource() {
+            public int[] next() throws IOException {
+                if (!in.next()) {
+                    return null;
+                }
+                int[] moves = new int[in.getMoveCount()];
+                for (int i = 0; i < moves.length; i++) {
+                    moves[i] = in.getMove(i);
+                }
+                return moves;
+            }
+        }, in.getRows(), in.getColumns(), in.getWinLength(), out);
+    }
+
+    /**
+     * Analyzes every game read from the specified text and writes the
+     * annotations to the specified output. Each line is one game, given as
+     * its moves separated by commas or spaces. Blank lines and lines
+     * starting with {@code #} are skipped. Neither stream is closed.
+     *
+     * @param   in      input to read games from
+     * @param   rows    number of rows of the board
+     * @param   cols    number of columns of the board
+     * @param   k       number of marks in a row needed to win
+     * @param   out     output to write annotations to
+     * @return  the totals of the analysis
+     * @throws  IOException if the games cannot be read or the output cannot be written.
+     * @throws  InterruptedException if the calling thread is interrupted.
+     */
+    public Result analyze(Reader in, int rows, int cols, int k, Writer out)
+        throws IOException, InterruptedException
+    {
+        final BufferedReader reader = new BufferedReader(in, 1 << 16);
+
+        return this.analyze(new GameSource() {
+            public int[] next() throws IOException {
+                String line;
+                do {
+                    line = reader.readLine();
+                    if (line == null) {
+                        return null;
+                    }
+                    line = line.trim();
+                } while (line.isEmpty() || line.startsWith("#"));
+
+                String[] parts = line.split("[,\\s]+");
+                int[] moves = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    try {
+                        moves[i] = Integer.parseInt(parts[i]);
+                    } catch (NumberFormatException e) {
+                        // replaying the game stops at the invalid move
+                        moves[i] = Board.INVALID_MOVE;
+                    }
+                }
+                return moves;
+            }
+        }, rows, cols, k, out);
+    }
+
+    /**
+     * Analyzes every game from the specified source.
+     */
+    private Result analyze(GameSource source, final int rows, final int cols, final int k,
+                           Writer out) throws IOException, InterruptedException
+    {
+        // fail now rather than for every game
+        new Board(rows, cols, k);
+
+        final Result result = new Result();
+        ExecutorService workers = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "game-analyzer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        int window = this.threads * WINDOW_PER_THREAD;
+        long start = System.nanoTime();
+        long count = 0;
+
+        try {
+            int[] game;
+            while ((game = source.next()) != null) {
+                // write the oldest game before reading further ahead
+                if (pending.size() >= window) {
+                    write(pending.removeFirst(), out);
+                }
+
+                final long number = ++count;
+                final int[] moves = game;
+                pending.addLast(workers.submit(new Callable<String>() {
+                    public String call() {
+                        return analyzeGame(number, moves, new Board(rows, cols, k), result);
+                    }
+                }));
+            }
+
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst(), out);
+            }
+            out.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+        result.elapsed = System.nanoTime() - start;
+
+        return result;
+    }
+
+    /**
+     * Waits for the specified annotations and writes them.
+     */
+    private static void write(Future<String> annotations, Writer out)
+        throws IOException, InterruptedException
+    {
+        try {
+            out.write(annotations.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("analysis failed", e.getCause());
+        }
+    }
+
+    /**
+     * Replays one game, searching the position before each move, and returns
+     * the annotations of its moves.
+     *
+     * @param   number  number of the game
+     * @param   moves   moves of the game
+     * @param   board   empty board to replay the game on
+     * @param   result  totals to add to
+     * @return  the annotation lines of the game
+     */
+    private String analyzeGame(long number, int[] moves, Board board, Result result)
+    {
+        AlphaBetaPlayer player = new AlphaBetaPlayer(this.depth, this.table);
+        player.setEvaluator(this.evaluator);
+        player.setMoveCache(this.cache);
+        player.setRandom(new Random(this.seed + number));
+        StringBuilder lines = new StringBuilder();
+        int[] legalMoves = new int[board.getSize()];
+
+        for (int turn = 0; turn < moves.length; turn++) {
+            int move = moves[turn];
+            if (board.getWinner() != Mark.NONE) {
+                lines.append(number).append('\t').append(turn).append("\terror: game is over\n");
+                result.errors.increment();
+                break;
+            }
+
+            SearchResult analysis = player.analyze(board);
+            int numMoves = board.getLegalMoves(legalMoves);
+            try {
+                board.play(move);
+            } catch (IllegalMoveException e) {
+                move = Board.INVALID_MOVE;
+            } catch (IllegalArgumentException e) {
+                move = Board.INVALID_MOVE;
+            }
+            if (move == Board.INVALID_MOVE) {
+                lines.append(number).append('\t').append(turn).append("\terror: illegal move\n");
+                result.errors.increment();
+                break;
+            }
+
+            int value = analysis.getValue(move);
+            int bestMove = analysis.getMove();
+            int bestValue = analysis.getValue();
+            String judgement;
+            if (analysis.getDepth() == 0) {
+                judgement = "?";
+            } else if (outcome(value) < outcome(bestValue)) {
+                judgement = "mistake";
+                result.mistakes.increment();
+            } else if (value < bestValue
+                       && bestValue - value >= this.threshold(analysis, legalMoves, numMoves)) {
+                judgement = "inaccuracy";
+                result.inaccuracies.increment();
+            } else {
+                judgement = "ok";
+            }
+            result.moves.increment();
+
+            lines.append(number).append('\t').append(turn).append('\t').append(move).append('\t')
+                 .append(analysis.getDepth() == 0 ? "?" : Integer.toString(value)).append('\t')
+                 .append(bestMove).append('\t')
+                 .append(analysis.getDepth() == 0 ? "?" : Integer.toString(bestValue)).append('\t')
+                 .append(judgement).append('\n');
+        }
+        result.games.increment();
+
+        return lines.toString();
+    }
+
+    /**
+     * Returns the heuristic loss which makes a move of the analyzed position
+     * an inaccuracy: the fixed threshold if one is set, and otherwise half of
+     * the difference between the best move and the worst move with the same
+     * outcome.
+     */
+    private int threshold(SearchResult analysis, int[] moves, int numMoves)
+    {
+        if (this.threshold > 0) {
+            return this.threshold;
+        }
+
+        int best = analysis.getValue();
+        int worst = best;
+        for (int i = 0; i < numMoves; i++) {
+            int value = analysis.getValue(moves[i]);
+            if (value != Integer.MIN_VALUE && outcome(value) == outcome(best)) {
+                worst = Math.min(worst, value);
+            }
+        }
+
+        return (best - worst + 1) / 2;
+    }
+
+    /**
+     * Returns {@code 1}, {@code 0} or {@code -1} if the specified value is a
+     * win, a draw or unclear, or a loss.
+     */
+    private static int outcome(int value)
+    {
+        if (value > Evaluator.MAX_VALUE) {
+            return 1;
+        } else if (value < -Evaluator.MAX_VALUE) {
+            return -1;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * A stream of games, read one at a time.
+     */
+    private interface GameSource
+    {
+        /**
+         * Returns the moves of the next game, or {@code null} at the end of
+         * the stream.
+         */
+        public int[] next() throws IOException;
+    }
+
+    /**
+     * Totals of an analysis.
+     */
+    public static class Result
+    {
+        private LongAdder games = new LongAdder();
+        private LongAdder moves = new LongAdder();
+        private LongAdder mistakes = new LongAdder();
+        private LongAdder inaccuracies = new LongAdder();
+        private LongAdder errors = new LongAdder();
+        private long elapsed;
+
+        /**
+         * Returns the number of games analyzed.
+         *
+         * @return  the number of games analyzed
+         */
+        public long getGames()
+        {
+            return this.games.sum();
+        }
+
+        /**
+         * Returns the number of moves analyzed.
+         *
+         * @return  the number of moves analyzed
+         */
+        public long getMoves()
+        {
+            return this.moves.sum();
+        }
+
+        /**
+         * Returns the number of moves flagged as mistakes.
+         *
+         * @return  the number of mistakes
+         */
+        public long getMistakes()
+        {
+            return this.mistakes.sum();
+        }
+
+        /**
+         * Returns the number of moves flagged as inaccuracies.
+         *
+         * @return  the number of inaccuracies
+         */
+        public long getInaccuracies()
+        {
+            return this.inaccuracies.sum();
+        }
+
+        /**
+         * Returns the number of games which had an illegal move or a move
+         * after the end of the game. The moves before it are still analyzed.
+         *
+         * @return  the number of games with an invalid move
+         */
+        public long getErrors()
+        {
+            return this.errors.sum();
+        }
+
+        /**
+         * Returns the number of games analyzed per second.
+         *
+         * @return  the number of games analyzed per second
+         */
+        public double getGamesPerSecond()
+        {
+            return this.elapsed == 0 ? 0.0 : this.getGames() * 1e9 / this.elapsed;
+        }
+
+        public String toString()
+        {
+            return String.format("%d games, %d moves: %d mistakes, %d inaccuracies, %d errors; "
+                                 + "%.3f s, %.0f games/s",
+                                 this.getGames(), this.getMoves(), this.getMistakes(),
+                                 this.getInaccuracies(), this.getErrors(),
+                                 this.elapsed / 1e9, this.getGamesPerSecond());
+        }
+    }
+
+    /**
+     * Analyzes games from a file, or standard input, and writes the
+     * annotations to a file, or standard output. The totals are printed to
+     * standard error.
+     * <p>
+     * Arguments: input, output, search depth, number of threads and, for text
+     * input, the board shape as {@code RxCkK}. An input or output of {@code -}
+     * is standard input or output. An input which starts like a file written
+     * by {@link GameRecordWriter} is read as game records, and any other input
+     * as text. All arguments are optional.
+     *
+     * @param   args    command line arguments
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        String input = args.length > 0 ? args[0] : "-";
+        String output = args.length > 1 ? args[1] : "-";
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 9;
+
+        GameAnalyzer analyzer = new GameAnalyzer(depth);
+        if (args.length > 3) {
+            analyzer.setThreads(Integer.parseInt(args[3]));
+        }
+        int[] shape = { 3, 3, 3 };
+        if (args.length > 4) {
+            String[] parts = args[4].split("[xk]");
+            for (int i = 0; i < 3; i++) {
+                shape[i] = Integer.parseInt(parts[i]);
+            }
+        }
+
+        BufferedInputStream in = new BufferedInputStream(
+            input.equals("-") ? System.in : new FileInputStream(input), 1 << 16);
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+            output.equals("-") ? System.out : new FileOutputStream(output), "UTF-8"), 1 << 16);
+
+        Result result;
+        try {
+            // look for the magic number of a game record stream
+            in.mark(4);
+            int magic = 0;
+            for (int i = 0; i < 4; i++) {
+                magic = (magic << 8) | (in.read() & 0xFF);
+            }
+            in.reset();
+
+            if (magic == GameRecordWriter.MAGIC) {
+                result = analyzer.analyze(new GameRecordReader(in), out);
+            } else {
+                result = analyzer.analyze(new InputStreamReader(in, "UTF-8"),
+                                          shape[0], shape[1], shape[2], out);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+
+        System.err.println(result);
+    }
+}
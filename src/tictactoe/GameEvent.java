@@ -0,0 +1,141 @@
+package tictactoe;
+
+import java.util.EventObject;
+
+/**
+ * An event of a game played by a {@link Driver}, delivered to a
+ * {@link GameListener}. The source of the event is the driver.
+ * <p>
+ * Each event holds a copy of the board as it was when the event happened, so
+ * that listeners never need to read the state of the driver, which may have
+ * changed by the time the event is handled.
+ *
+ * @author Todd Taomae
+ */
+@SuppressWarnings("serial")
+public class GameEvent extends EventObject
+{
+    /**
+     * The types of game events.
+     */
+    public enum Type
+    {
+        /** A game was started */
+        GAME_STARTED,
+        /** A move was played */
+        MOVE_PLAYED,
+        /** A game is over */
+        GAME_OVER
+    }
+
+    private final Type type;
+    private final Board board;
+
+    /**
+     * Constructs a new {@code GameEvent}.
+     *
+     * @param   source  the driver playing the game
+     * @param   type    the type of the event
+     * @param   board   copy of the board when the event happened, which is
+     *                  kept by the event and must not be modified
+     */
+    public GameEvent(Driver source, Type type, Board board)
+    {
+        super(source);
+        this.type = type;
+        this.board = board;
+    }
+
+    /**
+     * Returns the driver playing the game.
+     *
+     * @return  the driver playing the game
+     */
+    public Driver getDriver()
+    {
+        return (Driver)this.getSource();
+    }
+
+    /**
+     * Returns the type of this event.
+     *
+     * @return  the type of this event
+     */
+    public Type getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * Returns a copy of the board when this event happened.
+     *
+     * @return  a copy of the board when this event happened
+     */
+    public Board getBoard()
+    {
+        return (Board)this.board.clone();
+    }
+
+    /**
+     * Returns the number of moves played when this event happened. For a move
+     * event, this includes the move.
+     *
+     * @return  the number of moves played
+     */
+    public int getTurn()
+    {
+        return this.board.getTurn();
+    }
+
+    /**
+     * Returns the most recently played move, which for a move event is the
+     * move that was played.
+     *
+     * @return  the most recently played move, or {@link Board#INVALID_MOVE}
+     *          if no moves have been played
+     */
+    public int getMove()
+    {
+        return this.board.getLastMove();
+    }
+
+    /**
+     * Returns the mark of the most recently played move.
+     *
+     * @return  the mark of the most recently played move, or
+     *          {@link Mark#NONE} if no moves have been played
+     */
+    public Mark getMark()
+    {
+        int move = this.board.getLastMove();
+        return move == Board.INVALID_MOVE ? Mark.NONE : this.board.markAt(move);
+    }
+
+    /**
+     * Returns the mark of the specified position when this event happened.
+     *
+     * @param   pos     position on the board
+     * @return  the mark of the position
+     */
+    public Mark markAt(int pos)
+    {
+        return this.board.markAt(pos);
+    }
+
+    /**
+     * Returns the winner when this event happened, which for a game over
+     * event is the result of the game.
+     *
+     * @return  the winner, or {@link Mark#NONE} if the game is not over
+     */
+    public Mark getWinner()
+    {
+        return this.board.getWinner();
+    }
+
+    public String toString()
+    {
+        return this.type + "[turn=" + this.getTurn() + ", move=" + this.getMove()
+             + ", mark=" + this.getMark() + ", winner=" + this.getWinner() + "]";
+    }
+}
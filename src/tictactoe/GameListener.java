@@ -0,0 +1,38 @@
+package tictactoe;
+
+import java.util.EventListener;
+
+/**
+ * A listener for the events of the games played by a {@link Driver}.
+ * <p>
+ * Events are delivered on the thread playing the game, in the order in which
+ * they happen, as soon as they happen. A listener which is slow, or which
+ * must run on another thread, can be wrapped in an
+ * {@link AsyncGameListener}.
+ *
+ * @author Todd Taomae
+ */
+public interface GameListener extends EventListener
+{
+    /**
+     * Invoked when a game is started on a new board.
+     *
+     * @param   e   the event, with the empty board
+     */
+    public void gameStarted(GameEvent e);
+
+    /**
+     * Invoked after a move is played.
+     *
+     * @param   e   the event, with the move, the mark that played it and the
+     *              board after the move
+     */
+    public void movePlayed(GameEvent e);
+
+    /**
+     * Invoked when a game is over.
+     *
+     * @param   e   the event, with the winner and the final board
+     */
+    public void gameOver(GameEvent e);
+}
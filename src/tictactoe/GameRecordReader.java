@@ -0,0 +1,252 @@
+package tictactoe;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Reads games written by a {@link GameRecordWriter}, one at a time.
+ * <p>
+ * The reader is a cursor: {@link #next()} reads the next game into this
+ * reader, whose moves and winner can then be examined until the following
+ * call to {@code next()}. No object is created for each game, so a stream of
+ * any length can be read in constant memory.
+ *
+ * @author Todd Taomae
+ */
+public class GameRecordReader implements Closeable
+{
+    private DataInputStream in;
+    private int rows;
+    private int cols;
+    private int k;
+    private int size;
+
+    /** Spaces which are occupied in the game being read */
+    private long[] occupied;
+    private int[] moves;
+    private int numMoves;
+    private Mark winner;
+
+    /**
+     * Constructs a new reader of the specified stream and reads its header.
+     *
+     * @param   in  stream to read from
+     * @throws  IOException if the header cannot be read or is not valid.
+     */
+    public GameRecordReader(InputStream in) throws IOException
+    {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+
+        if (this.in.readInt() != GameRecordWriter.MAGIC) {
+            throw new IOException("not a game record stream");
+        }
+        int version = this.in.readUnsignedShort();
+        if (version != GameRecordWriter.VERSION) {
+            throw new IOException("unsupported version: " + version);
+        }
+        this.rows = this.in.readUnsignedShort();
+        this.cols = this.in.readUnsignedShort();
+        this.k = this.in.readUnsignedShort();
+
+        try {
+            this.size = new Board(this.rows, this.cols, this.k).getSize();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("invalid board shape", e);
+        }
+        this.occupied = new long[(this.size + 63) >>> 6];
+        this.moves = new int[this.size];
+        this.winner = Mark.NONE;
+    }
+
+    /**
+     * Returns the number of rows of the boards of the games.
+     *
+     * @return  the number of rows
+     */
+    public int getRows()
+    {
+        return this.rows;
+    }
+
+    /**
+     * Returns the number of columns of the boards of the games.
+     *
+     * @return  the number of columns
+     */
+    public int getColumns()
+    {
+        return this.cols;
+    }
+
+    /**
+     * Returns the number of marks in a row needed to win the games.
+     *
+     * @return  the number of marks in a row needed to win
+     */
+    public int getWinLength()
+    {
+        return this.k;
+    }
+
+    /**
+     * Reads the next game.
+     *
+     * @return  {@code true} if a game was read, or {@code false} if there are
+     *          no more games
+     * @throws  IOException if the game cannot be read or is not valid.
+     */
+    public boolean next() throws IOException
+    {
+        int first = this.in.read();
+        if (first < 0) {
+            return false;
+        }
+
+        long header = this.readVarint(first);
+        long n = header >>> 2;
+        if (n > this.size) {
+            throw new IOException("game has " + n + " moves");
+        }
+        this.numMoves = (int)n;
+        this.winner = outcome((int)header & 3);
+
+        Arrays.fill(this.occupied, 0L);
+        long bits = 0;
+        int numBits = 0;
+        for (int turn = 0; turn < this.numMoves; turn++) {
+            int width = GameRecordWriter.bitsFor(this.size - turn);
+            while (numBits < width) {
+                bits |= (long)this.in.readUnsignedByte() << numBits;
+                numBits += 8;
+            }
+            int index = (int)(bits & ((1L << width) - 1));
+            bits >>>= width;
+            numBits -= width;
+
+            int move = this.selectEmpty(index);
+            if (move < 0) {
+                throw new IOException("invalid move index " + index);
+            }
+            this.occupied[move >>> 6] |= 1L << move;
+            this.moves[turn] = move;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of moves of the current game.
+     *
+     * @return  the number of moves of the current game
+     */
+    public int getMoveCount()
+    {
+        return this.numMoves;
+    }
+
+    /**
+     * Returns the move played on the specified turn of the current game.
+     *
+     * @param   turn    turn of the move, counting from zero
+     * @return  the position of the move
+     */
+    public int getMove(int turn)
+    {
+        if (turn < 0 || turn >= this.numMoves) {
+            throw new IndexOutOfBoundsException("turn = " + turn);
+        }
+
+        return this.moves[turn];
+    }
+
+    /**
+     * Returns the recorded winner of the current game, or {@code Mark.NONE}
+     * if the game was not finished.
+     *
+     * @return  the winner of the current game
+     */
+    public Mark getWinner()
+    {
+        return this.winner;
+    }
+
+    /**
+     * Returns a new {@code Board} with the moves of the current game played.
+     *
+     * @return  the final board of the current game
+     * @throws  IllegalStateException if the moves are not a legal game.
+     */
+    public Board toBoard()
+    {
+        Board board = new Board(this.rows, this.cols, this.k);
+        try {
+            for (int turn = 0; turn < this.numMoves; turn++) {
+                board.play(this.moves[turn]);
+            }
+        } catch (IllegalMoveException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+
+        return board;
+    }
+
+    public void close() throws IOException
+    {
+        this.in.close();
+    }
+
+    /**
+     * Returns the position of the empty space with the specified index among
+     * the empty spaces, or {@code -1} if there are not that many.
+     */
+    private int selectEmpty(int index)
+    {
+        for (int w = 0; w < this.occupied.length; w++) {
+            long empty = ~this.occupied[w];
+            int remaining = this.size - (w << 6);
+            if (remaining < 64) {
+                empty &= (1L << remaining) - 1;
+            }
+
+            int count = Long.bitCount(empty);
+            if (index < count) {
+                for (; index > 0; index--) {
+                    empty &= empty - 1;
+                }
+                return (w << 6) + Long.numberOfTrailingZeros(empty);
+            }
+            index -= count;
+        }
+
+        return -1;
+    }
+
+    private long readVarint(int first) throws IOException
+    {
+        long value = first & 0x7F;
+        int shift = 7;
+        for (int b = first; (b & 0x80) != 0; shift += 7) {
+            if (shift > 63) {
+                throw new IOException("invalid record header");
+            }
+            b = this.in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+        }
+
+        return value;
+    }
+
+    private static Mark outcome(int code)
+    {
+        switch (code) {
+            case 1:
+                return Mark.X;
+            case 2:
+                return Mark.O;
+            case 3:
+                return Mark.DRAW;
+            default:
+                return Mark.NONE;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package tictactoe;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Writes finished games to a stream in a compact binary format, which can be
+ * read with a {@link GameRecordReader}.
+ * <p>
+ * The stream starts with a 12 byte header: a magic number, the format version
+ * and the number of rows, columns and marks in a row needed to win of every
+ * game in the stream. Each game is then written as:
+ * <ul>
+ * <li>the number of moves times four plus the outcome (0 if unfinished, 1 if X
+ *     won, 2 if O won, 3 if drawn), as an unsigned variable length integer
+ *     with seven bits per byte</li>
+ * <li>the moves, packed into as few bytes as possible. Each move is stored as
+ *     its index among the spaces which were empty, using just enough bits for
+ *     the number of empty spaces, so later moves take fewer bits.</li>
+ * </ul>
+ * A complete game on a 3x3 board takes four bytes.
+ * <p>
+ * Output is buffered, so the writer must be closed or flushed. A writer may
+ * be shared by several threads.
+ *
+ * @author Todd Taomae
+ */
+public class GameRecordWriter implements Closeable, Flushable
+{
+    /** Identifies a game record stream */
+    static final int MAGIC = 0x54544752;
+    /** Version of the format */
+    static final int VERSION = 1;
+
+    private DataOutputStream out;
+    private int rows;
+    private int cols;
+    private int k;
+    private int size;
+
+    /** Spaces which are occupied in the game being written */
+    private long[] occupied;
+    /** Record being written */
+    private byte[] record;
+    private long count;
+
+    /**
+     * Constructs a new writer of games on boards of the specified shape and
+     * writes the header to the specified stream.
+     *
+     * @param   out     stream to write to
+     * @param   rows    number of rows of the board
+     * @param   cols    number of columns of the board
+     * @param   k       number of marks in a row needed to win
+     * @throws  IOException if the header cannot be written.
+     */
+    public GameRecordWriter(OutputStream out, int rows, int cols, int k) throws IOException
+    {
+        int size = new Board(rows, cols, k).getSize();
+
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+        this.size = size;
+        this.occupied = new long[(size + 63) >>> 6];
+        // header, plus at most 32 bits for each move
+        this.record = new byte[10 + 4 * size];
+
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(VERSION);
+        this.out.writeShort(rows);
+        this.out.writeShort(cols);
+        this.out.writeShort(k);
+    }
+
+    /**
+     * Writes the moves and winner of the specified {@code Board}.
+     *
+     * @param   b   board whose game should be written
+     * @throws  IllegalArgumentException if the board is not of the shape of
+     *              this writer.
+     * @throws  IOException if the game cannot be written.
+     */
+    public void write(Board b) throws IOException
+    {
+        if (b.getRows() != this.rows || b.getColumns() != this.cols || b.getWinLength() != this.k) {
+            throw new IllegalArgumentException("board is not " + this.rows + "x" + this.cols
+                                               + ", k = " + this.k);
+        }
+
+        synchronized (this) {
+            int n = b.getTurn();
+            int length = writeVarint(this.record, 0, (long)n << 2 | outcomeOf(b.getWinner()));
+
+            Arrays.fill(this.occupied, 0L);
+            long bits = 0;
+            int numBits = 0;
+            for (int turn = 0; turn < n; turn++) {
+                int move = b.getMove(turn);
+                int index = move - countBefore(this.occupied, move);
+                this.occupied[move >>> 6] |= 1L << move;
+
+                // append the index, flushing whole bytes
+                int width = bitsFor(this.size - turn);
+                bits |= (long)index << numBits;
+                numBits += width;
+                while (numBits >= 8) {
+                    this.record[length++] = (byte)bits;
+                    bits >>>= 8;
+                    numBits -= 8;
+                }
+            }
+            if (numBits > 0) {
+                this.record[length++] = (byte)bits;
+            }
+
+            this.out.write(this.record, 0, length);
+            this.count++;
+        }
+    }
+
+    /**
+     * Returns the number of games written.
+     *
+     * @return  the number of games written
+     */
+    public synchronized long getCount()
+    {
+        return this.count;
+    }
+
+    public synchronized void flush() throws IOException
+    {
+        this.out.flush();
+    }
+
+    public synchronized void close() throws IOException
+    {
+        this.out.close();
+    }
+
+    /**
+     * Returns the code of the specified outcome.
+     */
+    static int outcomeOf(Mark winner)
+    {
+        switch (winner) {
+            case X:
+                return 1;
+            case O:
+                return 2;
+            case DRAW:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns the number of bits needed for an index among the specified
+     * number of choices.
+     */
+    static int bitsFor(int choices)
+    {
+        return choices <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(choices - 1);
+    }
+
+    /**
+     * Returns the number of set bits before the specified position.
+     */
+    static int countBefore(long[] bits, int pos)
+    {
+        int count = 0;
+        int word = pos >>> 6;
+        for (int w = 0; w < word; w++) {
+            count += Long.bitCount(bits[w]);
+        }
+
+        return count + Long.bitCount(bits[word] & ((1L << pos) - 1));
+    }
+
+    private static int writeVarint(byte[] buf, int offset, long value)
+    {
+        while ((value & ~0x7FL) != 0) {
+            buf[offset++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[offset++] = (byte)value;
+
+        return offset;
+    }
+}
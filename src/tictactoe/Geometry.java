@@ -0,0 +1,213 @@
+package tictactoe;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Precomputed tables for a board with a given number of rows and columns and
+ * a given number of marks in a row needed to win. The tables are shared by
+ * every {@code Board} of the same shape.
+ *
+ * @author Todd Taomae
+ */
+final class Geometry
+{
+    /**
+     * Geometries which have already been created, keyed by shape. Boards are
+     * created throughout a search, so lookups must not take a lock.
+     */
+    private static final ConcurrentHashMap<Long, Geometry> CACHE
+        = new ConcurrentHashMap<Long, Geometry>();
+
+    /** Row and column steps of the four line directions */
+    private static final int[][] DIRECTIONS = { {0, 1}, {1, 0}, {1, 1}, {1, -1} };
+    /**
+     * Largest number of spaces of a board, which bounds the size of the
+     * tables. A move plus one must fit in the 16 bit move field of a
+     * {@link TranspositionTable} entry.
+     */
+    static final int MAX_SIZE = (1 << 16) - 1;
+
+    final int rows;
+    final int cols;
+    final int k;
+    final int size;
+    /** Number of {@code long} words needed to hold one bit per space */
+    final int words;
+
+    /** Spaces of every line of {@code k} spaces */
+    final int[][] lines;
+    /** Indices of the lines through each space */
+    final int[][] cellLines;
+    /** Mask of each line, only if the board fits in a single word */
+    final long[] lineMasks;
+
+    /** The position each space is mapped to by each symmetry */
+    final int[][] symmetries;
+    /** The position each space is mapped from by each symmetry */
+    final int[][] inverseSymmetries;
+
+    /** Zobrist keys for each player and space */
+    final long[][] zobrist;
+
+    /**
+     * Returns the geometry for boards of the specified shape.
+     *
+     * @param   rows    number of rows
+     * @param   cols    number of columns
+     * @param   k       number of marks in a row needed to win
+     * @return  the geometry for boards of the specified shape
+     * @throws  IllegalArgumentException if the shape is not valid.
+     */
+    static Geometry of(final int rows, final int cols, final int k)
+    {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("rows = " + rows + ", cols = " + cols
+                                               + ": must be positive");
+        } else if ((long)rows * cols > MAX_SIZE) {
+            throw new IllegalArgumentException("rows = " + rows + ", cols = " + cols
+                                               + ": at most " + MAX_SIZE + " spaces");
+        } else if (k < 1 || k > Math.max(rows, cols)) {
+            throw new IllegalArgumentException("k = " + k + ": must be between 1 and "
+                                               + Math.max(rows, cols));
+        }
+
+        Long key = ((long)rows << 40) | ((long)cols << 20) | k;
+        Geometry result = CACHE.get(key);
+        if (result == null) {
+            // only the first board of a shape gets here; the tables are built
+            // once even if several threads ask for the same shape
+            result = CACHE.computeIfAbsent(key, new Function<Long, Geometry>() {
+                public Geometry apply(Long shape) {
+                    return new Geometry(rows, cols, k);
+                }
+            });
+        }
+
+        return result;
+    }
+
+    private Geometry(int rows, int cols, int k)
+    {
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+        this.size = rows * cols;
+        this.words = (this.size + 63) >>> 6;
+
+        // every line of k spaces in each direction
+        List<int[]> lineList = new ArrayList<int[]>();
+        for (int[] d : DIRECTIONS) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int endR = r + d[0] * (k-1);
+                    int endC = c + d[1] * (k-1);
+                    if (endR < 0 || endR >= rows || endC < 0 || endC >= cols) {
+                        continue;
+                    }
+                    // a single space is only one line, not one per direction
+                    if (k == 1 && d != DIRECTIONS[0]) {
+                        continue;
+                    }
+
+                    int[] line = new int[k];
+                    for (int i = 0; i < k; i++) {
+                        line[i] = (r + d[0]*i) * cols + (c + d[1]*i);
+                    }
+                    lineList.add(line);
+                }
+            }
+        }
+        this.lines = lineList.toArray(new int[lineList.size()][]);
+
+        int[] counts = new int[this.size];
+        for (int[] line : this.lines) {
+            for (int cell : line) {
+                counts[cell]++;
+            }
+        }
+        this.cellLines = new int[this.size][];
+        for (int i = 0; i < this.size; i++) {
+            this.cellLines[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int l = 0; l < this.lines.length; l++) {
+            for (int cell : this.lines[l]) {
+                this.cellLines[cell][counts[cell]++] = l;
+            }
+        }
+
+        if (this.words == 1) {
+            this.lineMasks = new long[this.lines.length];
+            for (int l = 0; l < this.lines.length; l++) {
+                for (int cell : this.lines[l]) {
+                    this.lineMasks[l] |= 1L << cell;
+                }
+            }
+        } else {
+            this.lineMasks = null;
+        }
+
+        this.symmetries = rows == cols ? squareSymmetries(rows) : rectangleSymmetries(rows, cols);
+        this.inverseSymmetries = new int[this.symmetries.length][this.size];
+        for (int t = 0; t < this.symmetries.length; t++) {
+            for (int i = 0; i < this.size; i++) {
+                this.inverseSymmetries[t][this.symmetries[t][i]] = i;
+            }
+        }
+
+        // fixed seed so that hashes are the same in every run
+        Random rng = new Random(0x5EED ^ ((long)rows << 40) ^ ((long)cols << 20) ^ k);
+        this.zobrist = new long[2][this.size];
+        for (long[] keys : this.zobrist) {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = rng.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Returns the eight symmetries of a square board: the identity, rotations
+     * by 90, 180 and 270 degrees clockwise, and reflections across the vertical
+     * axis, the horizontal axis, the main diagonal and the anti-diagonal.
+     */
+    private static int[][] squareSymmetries(int n)
+    {
+        int[][] result = new int[8][n*n];
+        int m = n - 1;
+        for (int i = 0; i < n*n; i++) {
+            int r = i / n;
+            int c = i % n;
+            result[0][i] = r*n + c;
+            result[1][i] = c*n + (m-r);
+            result[2][i] = (m-r)*n + (m-c);
+            result[3][i] = (m-c)*n + r;
+            result[4][i] = r*n + (m-c);
+            result[5][i] = (m-r)*n + c;
+            result[6][i] = c*n + r;
+            result[7][i] = (m-c)*n + (m-r);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the four symmetries of a non-square board: the identity, rotation
+     * by 180 degrees, and reflections across the vertical and horizontal axes.
+     */
+    private static int[][] rectangleSymmetries(int rows, int cols)
+    {
+        int[][] result = new int[4][rows*cols];
+        for (int i = 0; i < rows*cols; i++) {
+            int r = i / cols;
+            int c = i % cols;
+            result[0][i] = r*cols + c;
+            result[1][i] = (rows-1-r)*cols + (cols-1-c);
+            result[2][i] = r*cols + (cols-1-c);
+            result[3][i] = (rows-1-r)*cols + c;
+        }
+
+        return result;
+    }
+}
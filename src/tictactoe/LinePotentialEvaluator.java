@@ -0,0 +1,115 @@
+package tictactoe;
+
+/**
+ * Implementation of the {@code Evaluator} interface which counts the lines
+ * that each player can still complete.
+ * <p>
+ * A line is open for a player if the opponent has no marks in it. Each open
+ * line is worth more the more marks the player already has in it: a line with
+ * {@code c} marks is worth {@code 4^(c-1)}. The value of a position is the
+ * worth of X's open lines minus the worth of O's open lines, limited to
+ * {@link Evaluator#MAX_VALUE}.
+ * <p>
+ * The number of marks of each player in each line is kept up to date as moves
+ * are played and taken back, so each move only updates the lines through it.
+ *
+ * @author Todd Taomae
+ */
+public class LinePotentialEvaluator implements Evaluator
+{
+    /** Largest weight of a line, so that sums of weights do not overflow */
+    private static final int MAX_WEIGHT = 1 << 20;
+
+    private Geometry geometry;
+    /** Worth of an open line with each number of marks */
+    private int[] weights;
+    private int[] xCounts;
+    private int[] oCounts;
+    /** Value of the position for X */
+    private long value;
+
+    public void reset(Board b)
+    {
+        Geometry g = b.getGeometry();
+        if (this.geometry != g) {
+            this.geometry = g;
+            this.weights = new int[g.k + 1];
+            int w = 1;
+            for (int c = 1; c <= g.k; c++) {
+                this.weights[c] = w;
+                w = Math.min(w * 4, MAX_WEIGHT);
+            }
+            this.xCounts = new int[g.lines.length];
+            this.oCounts = new int[g.lines.length];
+        }
+
+        this.value = 0;
+        for (int l = 0; l < g.lines.length; l++) {
+            int x = 0;
+            int o = 0;
+            for (int cell : g.lines[l]) {
+                Mark m = b.markAt(cell);
+                if (m == Mark.X) {
+                    x++;
+                } else if (m == Mark.O) {
+                    o++;
+                }
+            }
+            this.xCounts[l] = x;
+            this.oCounts[l] = o;
+            this.value += this.lineValue(x, o);
+        }
+    }
+
+    public void played(Board b, int move)
+    {
+        this.update(move, b.markAt(move) == Mark.X ? this.xCounts : this.oCounts, 1);
+    }
+
+    public void undone(Board b, int move)
+    {
+        this.update(move, b.markAt(move) == Mark.X ? this.xCounts : this.oCounts, -1);
+    }
+
+    /**
+     * Adds the specified number of marks to the counts of each line through
+     * the specified space, and updates the value.
+     *
+     * @param   move    position of the mark
+     * @param   counts  counts of the player who owns the mark
+     * @param   delta   {@code 1} if the mark was added, {@code -1} if removed
+     */
+    private void update(int move, int[] counts, int delta)
+    {
+        for (int l : this.geometry.cellLines[move]) {
+            this.value -= this.lineValue(this.xCounts[l], this.oCounts[l]);
+            counts[l] += delta;
+            this.value += this.lineValue(this.xCounts[l], this.oCounts[l]);
+        }
+    }
+
+    /**
+     * Returns the value for X of a line with the specified number of marks.
+     */
+    private int lineValue(int x, int o)
+    {
+        if (o == 0) {
+            return this.weights[x];
+        } else if (x == 0) {
+            return -this.weights[o];
+        } else {
+            return 0;
+        }
+    }
+
+    public int evaluate(Board b, Mark player)
+    {
+        long v = Math.max(-MAX_VALUE, Math.min(this.value, MAX_VALUE));
+        return (int)(player == Mark.X ? v : -v);
+    }
+
+    public Evaluator copy()
+    {
+        return new LinePotentialEvaluator();
+    }
+}
@@ -0,0 +1,520 @@
+package tictactoe;
+
+import java.awt.event.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Implementation of the {@code Player} interface which uses Monte Carlo tree
+ * search with the UCT selection rule.
+ * <p>
+ * Each playout descends the tree from the current position, choosing at each
+ * node the move with the highest upper confidence bound, adds the moves of a
+ * node to the tree on its second visit, and finishes the game with random
+ * moves. The selected move is the one which was visited most often. The
+ * number of playouts for each move is limited by a playout limit, a time
+ * limit, or both, and a search in progress may be stopped with {@link #cancel()}.
+ * <p>
+ * The tree is kept between calls to {@link #getMove(Board)}. If the board is
+ * a continuation of the game from the last call, the subtree of the moves
+ * played since then becomes the new tree, so the playouts which went through
+ * those moves are not lost.
+ * <p>
+ * If the parallelism is set above one, several threads run playouts on the
+ * same tree. A thread counts its visit to each node as it descends and only
+ * adds the result when the playout is over, so until then the visit counts as
+ * a loss and other threads are steered to other moves.
+ *
+ * @author Todd Taomae
+ */
+public class MctsPlayer implements Player
+{
+    /** Number of playouts between checks of the time limit */
+    private static final int CHECK_INTERVAL = 64;
+    /** Default weight of the exploration term of the upper confidence bound */
+    private static final double DEFAULT_EXPLORATION = Math.sqrt(2.0);
+
+    private long playoutLimit;
+    private long timeLimit;
+    private double exploration;
+    private int parallelism;
+    private ForkJoinPool pool;
+    private Random rng;
+
+    /** Root of the tree, or {@code null} if there is none */
+    private Node root;
+    /** Position of the root of the tree */
+    private Board rootBoard;
+
+    /** Set by another thread to stop the search in progress */
+    private volatile boolean cancelled;
+    /** Playouts started for the current move */
+    private AtomicLong started;
+    private long deadline;
+
+    // statistics of the last call to getMove(Board)
+    private long playouts;
+    private long elapsed;
+
+    /**
+     * Constructs a new player which runs the specified number of playouts for
+     * each move.
+     *
+     * @param   playouts    number of playouts for each move
+     */
+    public MctsPlayer(int playouts)
+    {
+        this.playoutLimit = Math.max(playouts, 1);
+        this.exploration = DEFAULT_EXPLORATION;
+        this.parallelism = 1;
+        this.rng = new Random();
+        this.started = new AtomicLong();
+    }
+
+    /**
+     * Sets the random number generator used for the playouts, so that games
+     * can be reproduced. Games are only reproducible with a parallelism of one.
+     *
+     * @param   rng     random number generator to use
+     */
+    public void setRandom(Random rng)
+    {
+        this.rng = rng;
+    }
+
+    /**
+     * Sets the maximum number of playouts to run for each move.
+     *
+     * @param   playouts    playout limit, or {@code 0} for no limit
+     */
+    public void setPlayoutLimit(long playouts)
+    {
+        this.playoutLimit = Math.max(playouts, 0);
+    }
+
+    /**
+     * Sets the maximum amount of time to spend on each move. At least one
+     * playout is always run.
+     *
+     * @param   millis  time limit in milliseconds, or {@code 0} for no limit
+     */
+    public void setTimeLimit(long millis)
+    {
+        this.timeLimit = Math.max(millis, 0);
+    }
+
+    /**
+     * Sets the weight of the exploration term of the upper confidence bound.
+     * Higher values spread the playouts more evenly between moves.
+     *
+     * @param   c   weight of the exploration term
+     */
+    public void setExploration(double c)
+    {
+        this.exploration = c;
+    }
+
+    /**
+     * Sets the number of threads which run playouts. With a parallelism of
+     * one, the playouts run on the thread which calls {@link #getMove(Board)}.
+     *
+     * @param   parallelism     number of threads to run playouts on
+     */
+    public synchronized void setParallelism(int parallelism)
+    {
+        parallelism = Math.max(parallelism, 1);
+        if (parallelism != this.parallelism && this.pool != null) {
+            this.pool.shutdown();
+            this.pool = null;
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of threads which run playouts.
+     *
+     * @return  the number of threads which run playouts
+     */
+    public int getParallelism()
+    {
+        return this.parallelism;
+    }
+
+    /**
+     * Stops the search in progress, if any. The call to {@link #getMove(Board)}
+     * returns as soon as possible with the best move found so far. May be
+     * called from any thread.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+    }
+
+    /**
+     * Discards the tree kept from earlier moves, so that the next call to
+     * {@link #getMove(Board)} starts a new one. Must not be called while a
+     * search is in progress.
+     */
+    public void clearTree()
+    {
+        this.root = null;
+        this.rootBoard = null;
+    }
+
+    /**
+     * Returns the number of playouts run by the last call to {@link #getMove(Board)}.
+     *
+     * @return  the number of playouts run for the last move
+     */
+    public long getPlayouts()
+    {
+        return this.playouts;
+    }
+
+    /**
+     * Returns the number of playouts run per second by the last call to
+     * {@link #getMove(Board)}.
+     *
+     * @return  the number of playouts per second
+     */
+    public double getPlayoutsPerSecond()
+    {
+        return this.elapsed == 0 ? 0.0 : this.playouts * 1e9 / this.elapsed;
+    }
+
+    /**
+     * Returns the number of playouts which went through the root of the tree,
+     * including those kept from earlier moves.
+     *
+     * @return  the number of visits of the root, or {@code 0} if there is no tree
+     */
+    public int getTreeVisits()
+    {
+        return this.root == null ? 0 : this.root.visits;
+    }
+
+    /**
+     * Returns the move which was visited most often by the playouts from the
+     * specified {@code Board}.
+     *
+     * @param   b   board to evaluate
+     * @return  the selected move for the specified {@code Board}, or
+     *          {@link Board#INVALID_MOVE} if the game is over
+     */
+    public int getMove(Board b)
+    {
+        long start = System.nanoTime();
+        this.cancelled = false;
+        this.playouts = 0;
+        this.elapsed = 0;
+
+        if (b.getWinner() != Mark.NONE) {
+            return Board.INVALID_MOVE;
+        }
+
+        this.reuseTree(b);
+        this.started.set(0);
+        this.deadline = this.timeLimit > 0
+                      ? start + this.timeLimit * 1000000L
+                      : Long.MAX_VALUE;
+
+        ForkJoinPool pool = this.getPool();
+        Worker[] workers = new Worker[pool == null ? 1 : this.parallelism];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(this.rng.nextLong());
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int i = 1; i < workers.length; i++) {
+            tasks.add(pool.submit(workers[i]));
+        }
+        workers[0].run();
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        for (Worker worker : workers) {
+            this.playouts += worker.playouts;
+        }
+        this.elapsed = System.nanoTime() - start;
+
+        return this.bestMove();
+    }
+
+    /**
+     * Makes the node of the specified {@code Board} the root of the tree, if
+     * it is in the tree, and otherwise starts a new tree.
+     *
+     * @param   b   board to search
+     */
+    private void reuseTree(Board b)
+    {
+        Node node = null;
+
+        if (this.root != null && this.rootBoard.isSameShape(b)
+            && this.rootBoard.getTurn() <= b.getTurn()) {
+            int turn = this.rootBoard.getTurn();
+            node = this.root;
+            for (int t = 0; t < turn && node != null; t++) {
+                if (this.rootBoard.getMove(t) != b.getMove(t)) {
+                    node = null;
+                }
+            }
+            for (int t = turn; t < b.getTurn() && node != null; t++) {
+                node = node.child(b.getMove(t));
+            }
+        }
+
+        this.root = node != null ? node : new Node(Board.INVALID_MOVE);
+        this.rootBoard = (Board)b.clone();
+    }
+
+    /**
+     * Returns the move of the root which was visited most often, preferring
+     * the one with the highest score between moves with the same visits.
+     *
+     * @return  the most visited move
+     */
+    private int bestMove()
+    {
+        Node[] children = this.root.children;
+        Node best = null;
+
+        for (Node child : children) {
+            if (best == null || child.visits > best.visits
+                || child.visits == best.visits && child.score > best.score) {
+                best = child;
+            }
+        }
+
+        return best.move;
+    }
+
+    /**
+     * Returns the pool to run playouts on, creating it if necessary, or
+     * {@code null} if the playouts are serial.
+     *
+     * @return  the pool to run playouts on
+     */
+    private synchronized ForkJoinPool getPool()
+    {
+        if (this.parallelism > 1 && this.pool == null) {
+            // the calling thread is the remaining one
+            this.pool = new ForkJoinPool(this.parallelism - 1);
+        }
+
+        return this.pool;
+    }
+
+    /**
+     * Returns whether or not another playout should be started.
+     *
+     * @param   n   number of playouts started so far
+     * @return  {@code true} if the limits have not been reached
+     */
+    private boolean shouldContinue(long n)
+    {
+        if (n == 0) {
+            return true;
+        } else if (this.cancelled || this.playoutLimit > 0 && n >= this.playoutLimit) {
+            return false;
+        }
+
+        return n % CHECK_INTERVAL != 0 || System.nanoTime() < this.deadline;
+    }
+
+    public void actionPerformed(ActionEvent ae) { /* do nothing */ }
+
+    /**
+     * Runs playouts on a private copy of the root position until the limits
+     * are reached. The buffers are allocated once, so the playouts themselves
+     * do not allocate; only adding nodes to the tree does.
+     */
+    private class Worker implements Runnable
+    {
+        private Board board;
+        private int[] moves;
+        private Node[] path;
+        private Random rng;
+        private long playouts;
+
+        Worker(long seed)
+        {
+            this.board = (Board)rootBoard.clone();
+            this.moves = new int[this.board.getSize()];
+            this.path = new Node[this.board.getSize() + 1];
+            this.rng = new Random(seed);
+        }
+
+        public void run()
+        {
+            while (shouldContinue(started.getAndIncrement())) {
+                this.playout();
+                this.playouts++;
+            }
+        }
+
+        /**
+         * Runs one playout from the root and adds its result to every node of
+         * the tree which it went through.
+         */
+        private void playout()
+        {
+            int rootTurn = this.board.getTurn();
+            Node node = root;
+            int length = 0;
+
+            this.path[length++] = node;
+            node.visit();
+
+            // descend the tree, expanding nodes on their second visit
+            while (this.board.getWinner() == Mark.NONE) {
+                Node[] children = node.children;
+                if (children == null) {
+                    if (node != root && node.visits < 2) {
+                        break;
+                    }
+                    children = this.expand(node);
+                }
+
+                node = this.select(node, children);
+                node.visit();
+                this.path[length++] = node;
+                this.board.makeMove(node.move);
+            }
+
+            // finish the game with random moves
+            while (this.board.getWinner() == Mark.NONE) {
+                int numMoves = this.board.getLegalMoves(this.moves);
+                this.board.makeMove(this.moves[this.rng.nextInt(numMoves)]);
+            }
+
+            Mark winner = this.board.getWinner();
+            while (this.board.getTurn() > rootTurn) {
+                this.board.undo();
+            }
+
+            // the score of a node is for the player who moved into it
+            for (int i = 1; i < length; i++) {
+                Mark mover = ((rootTurn + i) & 1) == 1 ? Mark.X : Mark.O;
+                if (winner == mover) {
+                    this.path[i].addScore(2);
+                } else if (winner == Mark.DRAW) {
+                    this.path[i].addScore(1);
+                }
+            }
+        }
+
+        /**
+         * Adds a child for each legal move of the specified node, which is at
+         * the current position of the board, unless another thread already has.
+         *
+         * @param   node    node to expand
+         * @return  the children of the node
+         */
+        private Node[] expand(Node node)
+        {
+            synchronized (node) {
+                if (node.children == null) {
+                    int numMoves = this.board.getLegalMoves(this.moves);
+                    Node[] children = new Node[numMoves];
+                    // shuffle so that unvisited moves are not always tried in order
+                    for (int i = 0; i < numMoves; i++) {
+                        int j = this.rng.nextInt(i + 1);
+                        children[i] = children[j];
+                        children[j] = new Node(this.moves[i]);
+                    }
+                    node.children = children;
+                }
+
+                return node.children;
+            }
+        }
+
+        /**
+         * Returns the child of the specified node with the highest upper
+         * confidence bound. Unvisited children are selected first.
+         *
+         * @param   node        node to select from
+         * @param   children    children of the node
+         * @return  the selected child
+         */
+        private Node select(Node node, Node[] children)
+        {
+            double logVisits = Math.log(Math.max(node.visits, 1));
+            Node best = null;
+            double bestBound = Double.NEGATIVE_INFINITY;
+
+            for (Node child : children) {
+                int visits = child.visits;
+                if (visits == 0) {
+                    return child;
+                }
+
+                double bound = child.score / (2.0 * visits)
+                             + exploration * Math.sqrt(logVisits / visits);
+                if (bound > bestBound) {
+                    best = child;
+                    bestBound = bound;
+                }
+            }
+
+            return best;
+        }
+    }
+
+    /**
+     * Node of the search tree. The counters are updated by every thread
+     * without locking; only expansion is synchronized.
+     */
+    private static final class Node
+    {
+        private static final AtomicIntegerFieldUpdater<Node> VISITS
+            = AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        private static final AtomicIntegerFieldUpdater<Node> SCORE
+            = AtomicIntegerFieldUpdater.newUpdater(Node.class, "score");
+
+        /** Move which leads to this node */
+        final int move;
+        /** Children of this node, or {@code null} if it has not been expanded */
+        volatile Node[] children;
+        /** Number of playouts which went through this node */
+        volatile int visits;
+        /** Two points for each win and one for each draw of the player who moved */
+        volatile int score;
+
+        Node(int move)
+        {
+            this.move = move;
+        }
+
+        void visit()
+        {
+            VISITS.incrementAndGet(this);
+        }
+
+        void addScore(int points)
+        {
+            SCORE.addAndGet(this, points);
+        }
+
+        /**
+         * Returns the child reached by the specified move, or {@code null} if
+         * this node has not been expanded.
+         */
+        Node child(int move)
+        {
+            Node[] children = this.children;
+            if (children != null) {
+                for (Node child : children) {
+                    if (child.move == move) {
+                        return child;
+                    }
+                }
+            }
+
+            return null;
+        }
+    }
+}
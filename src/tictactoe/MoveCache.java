@@ -0,0 +1,268 @@
+package tictactoe;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the values of the moves of searched positions, which may
+ * be shared by any number of {@link AlphaBetaPlayer}s on any number of threads.
+ * <p>
+ * Entries are keyed by the canonical hash of the position, the depth it was
+ * searched to and the {@link Evaluator} used, since the values of a
+ * depth-limited search depend on the evaluator. Evaluators are compared by
+ * identity, since two evaluators of the same class may have different
+ * settings, so players only share entries if they also share an evaluator.
+ * Values are stored for the canonical form of the position, so a hit for any
+ * symmetric position can be mapped back to its own moves.
+ * <p>
+ * The cache is split into segments, each with its own lock, so threads rarely
+ * wait for each other. Each segment evicts its least recently used entry when
+ * it is full.
+ *
+ * @author Todd Taomae
+ */
+public class MoveCache
+{
+    /** Number of segments, a power of two */
+    private static final int SEGMENTS = 16;
+    /** Number of entries of the shared cache */
+    private static final int SHARED_CAPACITY = 1 << 16;
+
+    private static final MoveCache SHARED = new MoveCache(SHARED_CAPACITY);
+
+    private Segment[] segments;
+    private LongAdder hits;
+    private LongAdder misses;
+    private LongAdder evictions;
+
+    /**
+     * Constructs a new cache which holds at most the specified number of entries.
+     *
+     * @param   capacity    maximum number of entries
+     * @throws  IllegalArgumentException if the capacity is not positive.
+     */
+    public MoveCache(int capacity)
+    {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity = " + capacity + ": must be positive");
+        }
+
+        this.segments = new Segment[SEGMENTS];
+        int segmentCapacity = Math.max((capacity + SEGMENTS - 1) / SEGMENTS, 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment(segmentCapacity);
+        }
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Returns a cache which any {@code AlphaBetaPlayer} may be given with
+     * {@link AlphaBetaPlayer#setMoveCache(MoveCache)}.
+     *
+     * @return  the shared cache
+     */
+    public static MoveCache getShared()
+    {
+        return SHARED;
+    }
+
+    /**
+     * Returns the values of the moves of the specified {@code Board} when
+     * searched to the specified depth with the specified evaluator, or
+     * {@code null} if they are not in the cache.
+     *
+     * @param   b           searched board
+     * @param   depth       search depth
+     * @param   evaluator   evaluator used by the search, or {@code null}
+     * @return  the value of each move, indexed by position, or {@code null}
+     */
+    public int[] get(Board b, int depth, Evaluator evaluator)
+    {
+        Key key = new Key(b, depth, evaluator);
+        Segment segment = this.segmentFor(key);
+        int[] canonical;
+        synchronized (segment) {
+            canonical = segment.get(key);
+        }
+
+        if (canonical == null) {
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+
+        int symmetry = b.getCanonicalTransform();
+        int[] values = new int[canonical.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = canonical[b.transform(i, symmetry)];
+        }
+
+        return values;
+    }
+
+    /**
+     * Stores the values of the moves of the specified {@code Board}.
+     *
+     * @param   b           searched board
+     * @param   depth       search depth
+     * @param   evaluator   evaluator used by the search, or {@code null}
+     * @param   values      value of each move, indexed by position, with
+     *                      {@code Integer.MIN_VALUE} for occupied spaces
+     */
+    public void put(Board b, int depth, Evaluator evaluator, int[] values)
+    {
+        int symmetry = b.getCanonicalTransform();
+        int[] canonical = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            canonical[b.transform(i, symmetry)] = values[i];
+        }
+
+        Key key = new Key(b, depth, evaluator);
+        Segment segment = this.segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, canonical);
+        }
+    }
+
+    /**
+     * Removes every entry and resets the counters.
+     */
+    public void clear()
+    {
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        this.hits.reset();
+        this.misses.reset();
+        this.evictions.reset();
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return  the number of entries
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups which found an entry.
+     *
+     * @return  the number of cache hits
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups which did not find an entry.
+     *
+     * @return  the number of cache misses
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * Returns the number of entries which were removed to make room for others.
+     *
+     * @return  the number of evictions
+     */
+    public long getEvictions()
+    {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups which found an entry.
+     *
+     * @return  the hit rate, or {@code 0} if there have been no lookups
+     */
+    public double getHitRate()
+    {
+        long h = this.getHits();
+        long total = h + this.getMisses();
+        return total == 0 ? 0.0 : (double)h / total;
+    }
+
+    private Segment segmentFor(Key key)
+    {
+        // the low bits of the hash choose the table slot within the segment
+        return this.segments[(int)(key.hash >>> 60) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * A least recently used map which counts its evictions.
+     */
+    @SuppressWarnings("serial")
+    private final class Segment extends LinkedHashMap<Key, int[]>
+    {
+        private final int capacity;
+
+        Segment(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest)
+        {
+            if (this.size() > this.capacity) {
+                evictions.increment();
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Key of a cache entry.
+     */
+    private static final class Key
+    {
+        private final long hash;
+        private final int depth;
+        private final Geometry geometry;
+        private final Evaluator evaluator;
+
+        Key(Board b, int depth, Evaluator evaluator)
+        {
+            this.hash = b.getCanonicalHash();
+            this.depth = depth;
+            this.geometry = b.getGeometry();
+            this.evaluator = evaluator;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key)o;
+            return this.hash == other.hash && this.depth == other.depth
+                && this.geometry == other.geometry && this.evaluator == other.evaluator;
+        }
+
+        public int hashCode()
+        {
+            return (int)(this.hash ^ (this.hash >>> 32)) * 31 + this.depth;
+        }
+    }
+}
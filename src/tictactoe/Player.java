@@ -38,7 +38,7 @@ class SequentialPlayer implements Player
      */
     public int getMove(Board b)
     {
-        for (int i = 0; i < 9; i++) {
+        for (int i = 0; i < b.getSize(); i++) {
             if (b.markAt(i) == Mark.NONE) {
                 return i;
             }
@@ -86,7 +86,7 @@ class KeyboardPlayer implements Player
                 result = Board.INVALID_MOVE;
             }
 
-            if (result < 0  || result >= 9) {
+            if (result < 0  || result >= b.getSize()) {
                 result = Board.INVALID_MOVE;
             }
         }
@@ -112,6 +112,13 @@ class MinimaxPlayer implements Player
     private Mark myMark;
     private Random rng;
 
+    /** Board that is searched in place */
+    private Board board;
+    /** Buffer of legal moves for each ply of the search */
+    private int[][] moveBuffers;
+    /** Buffer of equally good moves at the root */
+    private int[] bestMoves;
+
     /**
      * Constructs a new player with the specified maximum search depth.
      *
@@ -124,6 +131,17 @@ class MinimaxPlayer implements Player
         this.rng = new Random();
     }
 
+    /**
+     * Sets the random number generator used to choose between equally good
+     * moves, so that games can be reproduced.
+     *
+     * @param   rng     random number generator to use
+     */
+    public void setRandom(Random rng)
+    {
+        this.rng = rng;
+    }
+
     /**
      * Returns the selected move for the specified {@code Board}.
      *
@@ -134,102 +152,91 @@ class MinimaxPlayer implements Player
     {
         this.myMark = b.getCurrentPlayer();
 
-        // special case: first turn - slect corner
-        if (b.getTurn() == 0) {
+        // special case: first turn of standard board - slect corner
+        if (b.getTurn() == 0 && b.getSize() == 9) {
             return 0;
         }
 
-        return minimaxRoot(b, this.maxDepth);
+        this.board = (Board)b.clone();
+        if (this.bestMoves == null || this.bestMoves.length != b.getSize()) {
+            this.moveBuffers = new int[Math.min(this.maxDepth, b.getSize()) + 1][b.getSize()];
+            this.bestMoves = new int[b.getSize()];
+        }
+        return minimaxRoot(this.maxDepth);
     }
 
     /**
-     * Returns the best move for the specified Board.
+     * Returns the best move for the current search board.
      *
-     * @param   board   board that is being searched
      * @param   depth   maximum search depth
      * @return  the index of the selected move
      */
-    private int minimaxRoot(Board board, int depth)
+    private int minimaxRoot(int depth)
     {
         int bestHeuristic = MIN_SCORE;
-        HashMap<Integer, Board> possibleMoves = new HashMap<Integer, Board>();
-        ArrayList<Integer> bestMoves = new ArrayList<Integer>();
-
+        int numBest = 0;
+        int[] moves = this.moveBuffers[0];
+        int numMoves = this.board.getLegalMoves(moves);
 
-        // populate list of possible moves
-        for (int i = 0; i < 9; i++) {
-            Board temp = (Board)board.clone();
-            try {
-                temp.play(i);
-                possibleMoves.put(i, temp);
+        for (int i = 0; i < numMoves; i++) {
+            this.board.makeMove(moves[i]);
+            int heuristic = minimax(depth - 1, 1);
+            this.board.undo();
 
-            } catch (IllegalMoveException e) {
-                // do not add to list
-            }
-        }
-
-        for (Map.Entry<Integer, Board> entry : possibleMoves.entrySet()) {
-            int heuristic = minimax(entry.getValue(), depth - 1);
             if (heuristic > bestHeuristic) {
-                bestMoves = new ArrayList<Integer>();
-                bestMoves.add(entry.getKey());
+                numBest = 0;
+                this.bestMoves[numBest++] = moves[i];
                 bestHeuristic = heuristic;
             } else if (heuristic == bestHeuristic) {
-                bestMoves.add(entry.getKey());
+                this.bestMoves[numBest++] = moves[i];
             }
         }
 
-        return bestMoves.get(this.rng.nextInt(bestMoves.size()));
+        return this.bestMoves[this.rng.nextInt(numBest)];
     }
 
     /**
-     * Returns the heuristic value for the best move of the specified Board.
+     * Returns the heuristic value for the best move of the current search board.
      *
-     * @param   board   board that is being searched
      * @param   depth   maximum search depth
+     * @param   ply     distance from the root of the search
      * @return  heuristic value of the best move
      */
-    private int minimax(Board board, int depth)
+    private int minimax(int depth, int ply)
     {
+        Mark winner = this.board.getWinner();
+
         // if terminal node, return heuristic.
-        if (depth == 0 || board.getWinner() != Mark.NONE) {
-            if (board.getWinner() == this.myMark) {
+        if (depth == 0 || winner != Mark.NONE) {
+            if (winner == this.myMark) {
                 return MAX_SCORE;
-            } else if (board.getWinner() == this.myMark.opposite()) {
+            } else if (winner == this.myMark.opposite()) {
                 return MIN_SCORE;
             } else {
                 return 0;
             }
         }
 
-        // create list of possible moves
-        ArrayList<Board> possibleMoves = new ArrayList<Board>();
-
-        for (int i = 0; i < 9; i++) {
-            Board temp = (Board)board.clone();
-            try {
-                if (temp.markAt(i) == Mark.NONE) {
-                    temp.play(i);
-                    possibleMoves.add(temp);
-                }
-            } catch (IllegalMoveException e) {
-                // should never reach here, since valid moves are checked above
-            }
-        }
+        int[] moves = this.moveBuffers[ply];
+        int numMoves = this.board.getLegalMoves(moves);
 
         int result;
         // maximize
-        if (board.getCurrentPlayer() == this.myMark) {
+        if (this.board.getCurrentPlayer() == this.myMark) {
             result = MIN_SCORE;
-            for (Board b : possibleMoves) {
-                result = Math.max(result, minimax(b, depth-1));
+            for (int i = 0; i < numMoves; i++) {
+                this.board.makeMove(moves[i]);
+                result = Math.max(result, minimax(depth-1, ply+1));
+                this.board.undo();
             }
 
         // minimize
         } else {
             result = MAX_SCORE;
-            for (Board b : possibleMoves) {
-                result = Math.min(result, minimax(b, depth-1));
+            for (int i = 0; i < numMoves; i++) {
+                this.board.makeMove(moves[i]);
+                result = Math.min(result, minimax(depth-1, ply+1));
+                this.board.undo();
             }
         }
 
@@ -0,0 +1,292 @@
+package tictactoe;
+
+import java.awt.event.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Implementation of the {@code Player} interface which searches with an
+ * {@link AlphaBetaPlayer} during the opponent's turn as well as its own.
+ * <p>
+ * After each move, the position is searched from the opponent's side to
+ * predict their most likely replies, and the position after each of those
+ * replies is then searched in the background, best reply first. When the
+ * opponent's move is one of the replies already searched, its result is
+ * returned immediately. When it is the reply being searched, that search is
+ * allowed to finish. Otherwise the background search is cancelled and the
+ * position is searched as usual.
+ * <p>
+ * The {@code AlphaBetaPlayer} must not be used by anything else, since it is
+ * shared between the background search and {@link #getMove(Board)}, which
+ * never use it at the same time. Positions searched in the background are
+ * also stored in the transposition table and move cache of the player, so a
+ * cancelled search still shortens the search that follows it.
+ *
+ * @author Todd Taomae
+ */
+public class PonderingPlayer implements Player
+{
+    /** Threads shared by every player which is not given an executor */
+    private static final ExecutorService PONDERING = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "tictactoe-ponder");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    });
+    /** Default number of replies searched in the background */
+    private static final int DEFAULT_REPLIES = 4;
+
+    private AlphaBetaPlayer engine;
+    private Executor executor;
+    private int maxReplies;
+
+    /** Background search in progress, or {@code null} */
+    private FutureTask<Void> pondering;
+    /** Set by whichever of the background search and the stop request comes first */
+    private AtomicBoolean claimed;
+    /** Results of the replies searched in the background, by position */
+    private Map<Board, SearchResult> results;
+    /** Position being searched in the background, or {@code null} */
+    private volatile Board target;
+    /** Set when the background search should not start another position */
+    private volatile boolean stopRequested;
+    /** Set when the result of the position being searched should be discarded */
+    private volatile boolean cancelled;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs a new player which searches with the specified player, in
+     * the background on a shared pool of low priority threads.
+     *
+     * @param   engine  player to search with
+     */
+    public PonderingPlayer(AlphaBetaPlayer engine)
+    {
+        this(engine, PONDERING);
+    }
+
+    /**
+     * Constructs a new player which searches with the specified player, in
+     * the background on the specified executor.
+     *
+     * @param   engine      player to search with
+     * @param   executor    executor to search in the background on
+     */
+    public PonderingPlayer(AlphaBetaPlayer engine, Executor executor)
+    {
+        this.engine = engine;
+        this.executor = executor;
+        this.maxReplies = DEFAULT_REPLIES;
+        this.results = new ConcurrentHashMap<Board, SearchResult>();
+    }
+
+    /**
+     * Sets the maximum number of the opponent's replies to search in the
+     * background after each move.
+     *
+     * @param   replies     maximum number of replies, or {@code 0} to not
+     *                      search in the background
+     */
+    public void setMaxReplies(int replies)
+    {
+        this.maxReplies = Math.max(replies, 0);
+    }
+
+    /**
+     * Returns the number of moves which were answered from a background search.
+     *
+     * @return  the number of moves answered from a background search
+     */
+    public long getPonderHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of moves which followed a background search, but
+     * which were not among the replies it searched.
+     *
+     * @return  the number of moves not answered from a background search
+     */
+    public long getPonderMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Returns the selected move for the specified {@code Board}, and starts
+     * searching the opponent's likely replies to it in the background.
+     *
+     * @param   b   board to evaluate
+     * @return  the selected move for the specified {@code Board}
+     */
+    public synchronized int getMove(Board b)
+    {
+        boolean pondered = this.pondering != null;
+        SearchResult result = this.stopPondering(b);
+
+        int move;
+        if (result != null) {
+            this.hits++;
+            move = result.getMove();
+        } else {
+            if (pondered) {
+                this.misses++;
+            }
+            move = this.engine.getMove(b);
+        }
+
+        if (move != Board.INVALID_MOVE && this.maxReplies > 0) {
+            Board next = (Board)b.clone();
+            next.makeMove(move);
+            if (next.getWinner() == Mark.NONE) {
+                this.startPondering(next);
+            }
+        }
+
+        return move;
+    }
+
+    /**
+     * Stops the background search, if any, and waits for it to finish. May be
+     * called when the game is abandoned so that the search does not continue.
+     */
+    public synchronized void stopPondering()
+    {
+        this.stopPondering(null);
+    }
+
+    /**
+     * Stops the background search and returns its result for the specified
+     * {@code Board}. If the board is being searched, the search is allowed to
+     * finish; otherwise it is cancelled. A background search which has not
+     * started yet never starts, and is not waited for.
+     *
+     * @param   b   board to return the result for, or {@code null}
+     * @return  the result for the board, or {@code null} if it was not searched
+     */
+    private SearchResult stopPondering(Board b)
+    {
+        if (this.pondering == null) {
+            return null;
+        }
+
+        if (this.claimed.compareAndSet(false, true)) {
+            // still waiting for a thread, which would only delay the games
+            // queued behind it
+            this.pondering.cancel(false);
+        } else {
+            this.stopRequested = true;
+            Board current = this.target;
+            if (b == null || current == null || !current.equals(b)) {
+                this.cancelled = true;
+                this.engine.cancel();
+            }
+
+            try {
+                this.pondering.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.engine.cancel();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("background search failed", e.getCause());
+            }
+        }
+
+        SearchResult result = b == null ? null : this.results.get(b);
+        this.results.clear();
+        this.pondering = null;
+
+        return result;
+    }
+
+    /**
+     * Starts searching the likely replies to the specified position in the
+     * background.
+     *
+     * @param   position    position after this player's move
+     */
+    private void startPondering(final Board position)
+    {
+        this.stopRequested = false;
+        this.cancelled = false;
+        this.target = null;
+        // any later call to cancel() stops the background search, even one
+        // made before the search starts
+        final long cancelCount = this.engine.getCancelCount();
+        final AtomicBoolean claimed = new AtomicBoolean();
+        this.claimed = claimed;
+        this.pondering = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                if (claimed.compareAndSet(false, true)) {
+                    ponder(position, cancelCount);
+                }
+            }
+        }, null);
+        this.executor.execute(this.pondering);
+    }
+
+    /**
+     * Searches the position from the opponent's side, then searches the
+     * positions after their best replies, until stopped.
+     *
+     * @param   position        position after this player's move
+     * @param   cancelCount     number of calls to cancel the engine before
+     *                          the background search started
+     */
+    private void ponder(Board position, long cancelCount)
+    {
+        if (this.stopRequested) {
+            return;
+        }
+
+        // the values of the opponent's moves predict their reply
+        SearchResult prediction = this.engine.analyze(position, cancelCount);
+        int[] replies = new int[position.getSize()];
+        int numReplies = position.getLegalMoves(replies);
+        sortByValue(replies, numReplies, prediction);
+
+        for (int i = 0; i < numReplies && i < this.maxReplies && !this.stopRequested; i++) {
+            Board next = (Board)position.clone();
+            next.makeMove(replies[i]);
+            if (next.getWinner() != Mark.NONE) {
+                continue;
+            }
+
+            this.target = next;
+            // the target must be visible before checking whether to stop
+            if (this.stopRequested) {
+                break;
+            }
+            SearchResult result = this.engine.analyze(next, cancelCount);
+            if (!this.cancelled) {
+                this.results.put(next, result);
+            }
+            this.target = null;
+        }
+    }
+
+    /**
+     * Sorts the specified moves from highest to lowest value in the
+     * specified result.
+     */
+    private static void sortByValue(int[] moves, int numMoves, SearchResult values)
+    {
+        for (int i = 1; i < numMoves; i++) {
+            int move = moves[i];
+            int j = i - 1;
+            while (j >= 0 && values.getValue(moves[j]) < values.getValue(move)) {
+                moves[j+1] = moves[j];
+                j--;
+            }
+            moves[j+1] = move;
+        }
+    }
+
+    public void actionPerformed(ActionEvent ae) { /* do nothing */ }
+}
@@ -0,0 +1,210 @@
+package tictactoe;
+
+import java.util.*;
+
+/**
+ * A perfect, dense numbering of the positions which can be reached in games
+ * on boards of one shape, from {@code 0} to {@link #size()}{@code  - 1}.
+ * <p>
+ * Positions are identified by their {@link Board#encode() encoding}, so the
+ * index can only be built for boards of at most {@link Board#MAX_ENCODED_SIZE}
+ * spaces. A position is reachable if it can occur in a game, including
+ * positions where the game is over, but not positions after the end of a game.
+ * Positions are numbered in increasing order of their encoding as an unsigned
+ * number, so rank and unrank are a binary search and an array lookup.
+ * <p>
+ * Building the index visits every reachable position once, which takes a
+ * fraction of a second for a 3x3 board (5478 positions) but several seconds
+ * for 4x4 boards. An index never changes once built and may be shared by
+ * any number of threads.
+ *
+ * @author Todd Taomae
+ */
+public class PositionIndex
+{
+    private int rows;
+    private int cols;
+    private int k;
+    /** Encodings of the reachable positions, sorted as unsigned numbers */
+    private int[] codes;
+
+    /**
+     * Constructs a new index of the reachable positions of boards of the
+     * specified shape.
+     *
+     * @param   rows    number of rows
+     * @param   cols    number of columns
+     * @param   k       number of marks in a row needed to win
+     * @throws  IllegalArgumentException if the shape is not valid or has
+     *              more than {@link Board#MAX_ENCODED_SIZE} spaces.
+     */
+    public PositionIndex(int rows, int cols, int k)
+    {
+        Board board = new Board(rows, cols, k);
+        if (board.getSize() > Board.MAX_ENCODED_SIZE) {
+            throw new IllegalArgumentException("only boards of at most " + Board.MAX_ENCODED_SIZE
+                                               + " spaces can be indexed");
+        }
+
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+
+        // one bit for every assignment of marks to the spaces
+        int assignments = 1;
+        for (int i = 0; i < board.getSize(); i++) {
+            assignments *= 3;
+        }
+        BitSet visited = new BitSet(assignments);
+        int[] found = new int[1024];
+        int count = 0;
+
+        // depth-first search with an explicit stack of untried moves
+        int[][] moves = new int[board.getSize() + 1][board.getSize()];
+        int[] numMoves = new int[board.getSize() + 1];
+        int[] next = new int[board.getSize() + 1];
+
+        visited.set(0);
+        found[count++] = board.encode();
+        numMoves[0] = board.getLegalMoves(moves[0]);
+        int ply = 0;
+
+        while (ply >= 0) {
+            if (next[ply] == numMoves[ply]) {
+                // all moves from this position have been tried
+                if (ply > 0) {
+                    board.undo();
+                }
+                ply--;
+                continue;
+            }
+
+            board.makeMove(moves[ply][next[ply]++]);
+            int index = ternaryIndex(board);
+            if (visited.get(index)) {
+                board.undo();
+                continue;
+            }
+            visited.set(index);
+            if (count == found.length) {
+                found = Arrays.copyOf(found, count * 2);
+            }
+            found[count++] = board.encode();
+
+            ply++;
+            next[ply] = 0;
+            numMoves[ply] = board.getWinner() == Mark.NONE ? board.getLegalMoves(moves[ply]) : 0;
+        }
+
+        // flip the sign bit so that signed order is unsigned order
+        for (int i = 0; i < count; i++) {
+            found[i] ^= Integer.MIN_VALUE;
+        }
+        Arrays.sort(found, 0, count);
+        for (int i = 0; i < count; i++) {
+            found[i] ^= Integer.MIN_VALUE;
+        }
+        this.codes = Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Returns the number of reachable positions.
+     *
+     * @return  the number of reachable positions
+     */
+    public int size()
+    {
+        return this.codes.length;
+    }
+
+    /**
+     * Returns the index of the position with the specified encoding.
+     *
+     * @param   code    encoding of a position
+     * @return  the index of the position, or {@code -1} if it is not reachable
+     */
+    public int rank(int code)
+    {
+        int lo = 0;
+        int hi = this.codes.length - 1;
+        int key = code ^ Integer.MIN_VALUE;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = this.codes[mid] ^ Integer.MIN_VALUE;
+            if (c < key) {
+                lo = mid + 1;
+            } else if (c > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the index of the position of the specified {@code Board}.
+     *
+     * @param   b   board whose position to find
+     * @return  the index of the position, or {@code -1} if it is not reachable
+     * @throws  IllegalArgumentException if the board is not of the shape of
+     *              this index.
+     */
+    public int rank(Board b)
+    {
+        if (b.getRows() != this.rows || b.getColumns() != this.cols || b.getWinLength() != this.k) {
+            throw new IllegalArgumentException("board is not " + this.rows + "x" + this.cols
+                                               + ", k = " + this.k);
+        }
+
+        return this.rank(b.encode());
+    }
+
+    /**
+     * Returns the encoding of the position with the specified index.
+     *
+     * @param   index   index of a position
+     * @return  the encoding of the position
+     * @throws  IndexOutOfBoundsException if the index is not less than {@link #size()}.
+     */
+    public int unrank(int index)
+    {
+        if (index < 0 || index >= this.codes.length) {
+            throw new IndexOutOfBoundsException("index = " + index);
+        }
+
+        return this.codes[index];
+    }
+
+    /**
+     * Returns a new {@code Board} with the position with the specified index.
+     *
+     * @param   index   index of a position
+     * @return  a board with the position
+     * @throws  IndexOutOfBoundsException if the index is not less than {@link #size()}.
+     */
+    public Board toBoard(int index)
+    {
+        return Board.decode(this.unrank(index), this.rows, this.cols, this.k);
+    }
+
+    /**
+     * Returns the number of the specified board written in base three, with
+     * one digit for each space: 0 if it is empty, 1 for X and 2 for O.
+     */
+    private static int ternaryIndex(Board b)
+    {
+        int code = b.encode();
+        int x = code & 0xFFFF;
+        int o = code >>> 16;
+        int index = 0;
+
+        for (int i = b.getSize() - 1; i >= 0; i--) {
+            index = index * 3 + ((x >>> i) & 1) + 2 * ((o >>> i) & 1);
+        }
+
+        return index;
+    }
+}
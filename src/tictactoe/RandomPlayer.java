@@ -0,0 +1,56 @@
+package tictactoe;
+
+import java.awt.event.*;
+import java.util.Random;
+
+/**
+ * Implementation of the {@code Player} interface which uses a random selection.
+ *
+ * @author Todd Taomae
+ */
+class RandomPlayer implements Player
+{
+    private Random rng;
+    private int[] moves;
+
+    /**
+     * Constructs a new {@code RandomPlayer}.
+     */
+    public RandomPlayer()
+    {
+        this.rng = new Random();
+        this.moves = new int[0];
+    }
+
+    /**
+     * Sets the random number generator used to choose moves.
+     *
+     * @param   rng     random number generator to use
+     */
+    public void setRandom(Random rng)
+    {
+        this.rng = rng;
+    }
+
+    /**
+     * Returns a random available move for the specified board.
+     *
+     * @param   b   the board to select a move for.
+     * @return  the selected move for the specified {@code Board}
+     */
+    public int getMove(Board b)
+    {
+        if (this.moves.length != b.getSize()) {
+            this.moves = new int[b.getSize()];
+        }
+
+        int numMoves = b.getLegalMoves(this.moves);
+        if (numMoves == 0) {
+            return Board.INVALID_MOVE;
+        }
+
+        return this.moves[this.rng.nextInt(numMoves)];
+    }
+
+    public void actionPerformed(ActionEvent ae) { /* do nothing */ }
+}
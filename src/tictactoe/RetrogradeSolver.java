@@ -0,0 +1,566 @@
+package tictactoe;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Solves every reachable position of boards of one shape by backward
+ * induction, and stores the results in a file with two bits per position.
+ * <p>
+ * Positions are grouped into layers by the number of marks on the board. The
+ * last layer is solved first, and each earlier layer is then solved from the
+ * values of the layer after it, so only two layers of values are held in
+ * memory at a time. The positions of each layer are split into chunks which
+ * are solved in parallel.
+ * <p>
+ * The positions of each layer are numbered in the order of
+ * {@link PositionIndex}. The file starts with a header giving the shape, the
+ * number of positions in each layer and the lowest layer which has been
+ * solved, followed by the values of each layer, four positions per byte,
+ * with {@code 0} for an unsolved position, {@code 1} for a loss, {@code 2}
+ * for a draw and {@code 3} for a win for the player to move. The header is
+ * only updated after a layer has been written, so an interrupted solver can
+ * be restarted with the same file and continues from the last completed layer.
+ *
+ * @author Todd Taomae
+ */
+public class RetrogradeSolver
+{
+    /** Identifies a solver file */
+    private static final int MAGIC = 0x54545253;
+    /** Version of the file format */
+    private static final int VERSION = 1;
+    /** Number of positions solved by a thread at a time, a multiple of four */
+    private static final int CHUNK_SIZE = 4096;
+
+    // values stored in the file
+    private static final int UNSOLVED = 0;
+    private static final int LOSS = 1;
+    private static final int DRAW = 2;
+    private static final int WIN = 3;
+
+    private int rows;
+    private int cols;
+    private int k;
+    private Geometry geometry;
+    private File file;
+    private int threads;
+
+    /** Sorted encodings of the positions of each layer */
+    private int[][] layers;
+    /** Offset in the file of the values of each layer */
+    private long[] offsets;
+    private long positions;
+    /** Read only mapping of the file, or {@code null} until a value is looked up */
+    private volatile ByteBuffer mapping;
+
+    // statistics of the last call to solve()
+    private long solved;
+    private long elapsed;
+
+    /**
+     * Constructs a new solver for boards of the specified shape which stores
+     * its results in the specified file, and finds every reachable position.
+     *
+     * @param   rows    number of rows
+     * @param   cols    number of columns
+     * @param   k       number of marks in a row needed to win
+     * @param   file    file to store the results in
+     * @throws  IllegalArgumentException if the shape is not valid or has more
+     *              than {@link Board#MAX_ENCODED_SIZE} spaces.
+     */
+    public RetrogradeSolver(int rows, int cols, int k, File file)
+    {
+        PositionIndex index = new PositionIndex(rows, cols, k);
+
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+        this.geometry = Geometry.of(rows, cols, k);
+        this.file = file;
+        this.threads = Runtime.getRuntime().availableProcessors();
+
+        // split the positions by number of marks, keeping them sorted
+        int size = this.geometry.size;
+        int[] counts = new int[size + 1];
+        for (int i = 0; i < index.size(); i++) {
+            counts[Integer.bitCount(index.unrank(i))]++;
+        }
+        this.layers = new int[size + 1][];
+        for (int n = 0; n <= size; n++) {
+            this.layers[n] = new int[counts[n]];
+            counts[n] = 0;
+        }
+        for (int i = 0; i < index.size(); i++) {
+            int code = index.unrank(i);
+            int n = Integer.bitCount(code);
+            this.layers[n][counts[n]++] = code;
+        }
+
+        this.offsets = new long[size + 2];
+        this.offsets[0] = this.headerSize();
+        for (int n = 0; n <= size; n++) {
+            this.offsets[n + 1] = this.offsets[n] + (this.layers[n].length + 3) / 4;
+        }
+        this.positions = index.size();
+    }
+
+    /**
+     * Sets the number of threads to solve with.
+     *
+     * @param   threads     number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Returns the number of reachable positions.
+     *
+     * @return  the number of reachable positions
+     */
+    public long getPositionCount()
+    {
+        return this.positions;
+    }
+
+    /**
+     * Returns the number of positions solved by the last call to {@link #solve()},
+     * which does not include positions solved before it was resumed.
+     *
+     * @return  the number of positions solved
+     */
+    public long getSolvedCount()
+    {
+        return this.solved;
+    }
+
+    /**
+     * Returns the number of positions solved per second by the last call to
+     * {@link #solve()}.
+     *
+     * @return  the number of positions solved per second
+     */
+    public double getPositionsPerSecond()
+    {
+        return this.elapsed == 0 ? 0.0 : this.solved * 1e9 / this.elapsed;
+    }
+
+    /**
+     * Returns the largest amount of heap memory that has been in use, in bytes.
+     *
+     * @return  the peak heap usage
+     */
+    public static long getPeakMemory()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return peak;
+    }
+
+    /**
+     * Solves every layer which has not already been solved in the file.
+     *
+     * @throws  IOException if the file cannot be read or written, or if it
+     *              belongs to a different shape.
+     * @throws  InterruptedException if the calling thread is interrupted.
+     */
+    public void solve() throws IOException, InterruptedException
+    {
+        this.solve(0);
+    }
+
+    /**
+     * Solves the layers which have not already been solved in the file, down
+     * to the layer with the specified number of marks. The file is left as an
+     * interrupted solver leaves it, so a later call continues from there.
+     *
+     * @param   last    number of marks of the last layer to solve
+     * @throws  IOException if the file cannot be read or written, or if it
+     *              belongs to a different shape.
+     * @throws  InterruptedException if the calling thread is interrupted.
+     */
+    void solve(int last) throws IOException, InterruptedException
+    {
+        long start = System.nanoTime();
+        this.solved = 0;
+        // the file may grow, so it is mapped again by the next lookup
+        this.mapping = null;
+
+        RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            int lowest = this.readHeader(channel);
+
+            int size = this.geometry.size;
+            byte[] next = lowest <= size ? this.readLayer(channel, lowest) : null;
+
+            for (int n = lowest - 1; n >= last; n--) {
+                byte[] values = this.solveLayer(n, next);
+                this.writeLayer(channel, n, values);
+                channel.force(false);
+                this.writeHeader(channel, n);
+                channel.force(false);
+
+                this.solved += this.layers[n].length;
+                next = values;
+            }
+        } catch (ClosedByInterruptException e) {
+            // the header is only written after a layer, so the file can
+            // still be resumed; report the interruption as any other
+            Thread.interrupted();
+            InterruptedException interrupted =
+                new InterruptedException("interrupted while using " + this.file);
+            interrupted.initCause(e);
+            throw interrupted;
+        } finally {
+            raf.close();
+        }
+
+        this.elapsed = System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the value of the specified {@code Board} for the player to move,
+     * from the file written by {@link #solve()}. The file is mapped into
+     * memory by the first lookup, so each later lookup reads a single byte
+     * of the mapping. May be called by several threads, but not while the
+     * solver is running.
+     *
+     * @param   b   board to look up
+     * @return  one of {@link TablebasePlayer#WIN}, {@link TablebasePlayer#DRAW}
+     *          or {@link TablebasePlayer#LOSS}
+     * @throws  IllegalArgumentException if the board is not of the shape of
+     *              this solver or is not reachable.
+     * @throws  IllegalStateException if the position has not been solved.
+     * @throws  IOException if the file cannot be read.
+     */
+    public int getValue(Board b) throws IOException
+    {
+        if (b.getRows() != this.rows || b.getColumns() != this.cols || b.getWinLength() != this.k) {
+            throw new IllegalArgumentException("board is not " + this.rows + "x" + this.cols
+                                               + ", k = " + this.k);
+        }
+        int n = b.getTurn();
+        int i = rank(this.layers[n], b.encode());
+        if (i < 0) {
+            throw new IllegalArgumentException("position is not reachable");
+        }
+
+        ByteBuffer values = this.mapping;
+        if (values == null) {
+            values = this.map();
+        }
+        long offset = this.offsets[n] + (i >>> 2);
+        // layers which have not been written yet are unsolved
+        int value = offset < values.limit() ? (values.get((int)offset) >>> ((i & 3) * 2)) & 3
+                                            : UNSOLVED;
+
+        switch (value) {
+            case WIN:
+                return TablebasePlayer.WIN;
+            case DRAW:
+                return TablebasePlayer.DRAW;
+            case LOSS:
+                return TablebasePlayer.LOSS;
+            default:
+                throw new IllegalStateException("position has not been solved");
+        }
+    }
+
+    /**
+     * Maps the file for lookups, unless another thread already has.
+     *
+     * @return  the mapping of the file
+     */
+    private synchronized ByteBuffer map() throws IOException
+    {
+        if (this.mapping == null) {
+            RandomAccessFile raf = new RandomAccessFile(this.file, "r");
+            try {
+                long length = Math.min(raf.length(), this.offsets[this.offsets.length - 1]);
+                // the mapping remains valid after the file is closed
+                this.mapping = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } finally {
+                raf.close();
+            }
+        }
+
+        return this.mapping;
+    }
+
+    /**
+     * Solves the specified layer in parallel. If the calling thread is
+     * interrupted, the workers are stopped and have finished by the time
+     * the exception is thrown.
+     *
+     * @param   n       number of marks of the positions of the layer
+     * @param   next    values of the following layer, or {@code null} if
+     *                  there is none
+     * @return  the values of the layer
+     */
+    private byte[] solveLayer(final int n, final byte[] next) throws InterruptedException
+    {
+        final int[] codes = this.layers[n];
+        final byte[] values = new byte[(codes.length + 3) / 4];
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        Thread[] workers = new Thread[this.threads];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread("retrograde-" + t) {
+                public void run() {
+                    try {
+                        int first;
+                        while (!this.isInterrupted()
+                               && (first = nextChunk.getAndAdd(CHUNK_SIZE)) < codes.length) {
+                            int last = Math.min(first + CHUNK_SIZE, codes.length);
+                            // chunks start at a multiple of four, so no byte is shared
+                            for (int i = first; i < last; i++) {
+                                int v = solvePosition(codes[i], n, next);
+                                values[i >>> 2] |= (byte)(v << ((i & 3) * 2));
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            // the workers must not outlive the call, since the caller may
+            // close the file or solve the layer again
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            for (Thread worker : workers) {
+                joinUninterruptibly(worker);
+            }
+            throw e;
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        return values;
+    }
+
+    /**
+     * Waits for the specified thread to finish, ignoring interrupts of the
+     * calling thread, which is already being interrupted.
+     */
+    private static void joinUninterruptibly(Thread thread)
+    {
+        while (true) {
+            try {
+                thread.join();
+                return;
+            } catch (InterruptedException e) {
+                // keep waiting; the worker stops after its current chunk
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the specified position for the player to move.
+     *
+     * @param   code    encoding of the position
+     * @param   n       number of marks of the position
+     * @param   next    values of the following layer
+     * @return  the value of the position
+     */
+    private int solvePosition(int code, int n, byte[] next)
+    {
+        int x = code & 0xFFFF;
+        int o = code >>> 16;
+        boolean xToMove = (n & 1) == 0;
+
+        // only the player who moved last can have a line
+        if (this.hasLine(xToMove ? o : x)) {
+            return LOSS;
+        } else if (n == this.geometry.size) {
+            return DRAW;
+        }
+
+        int[] childCodes = this.layers[n + 1];
+        int best = LOSS;
+        int empty = ~(x | o) & ((1 << this.geometry.size) - 1);
+        while (empty != 0 && best != WIN) {
+            int bit = empty & -empty;
+            empty ^= bit;
+
+            int child = xToMove ? code | bit : code | (bit << 16);
+            int i = rank(childCodes, child);
+            int v = (next[i >>> 2] >>> ((i & 3) * 2)) & 3;
+            // a loss for the opponent is a win for the player to move
+            best = Math.max(best, WIN + LOSS - v);
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns whether or not the specified marks contain a complete line.
+     */
+    private boolean hasLine(int marks)
+    {
+        for (long mask : this.geometry.lineMasks) {
+            if ((marks & mask) == mask) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the index of the specified code in the specified codes, which
+     * are sorted as unsigned numbers, or {@code -1} if it is not found.
+     */
+    private static int rank(int[] codes, int code)
+    {
+        int lo = 0;
+        int hi = codes.length - 1;
+        int key = code ^ Integer.MIN_VALUE;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = codes[mid] ^ Integer.MIN_VALUE;
+            if (c < key) {
+                lo = mid + 1;
+            } else if (c > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    private int headerSize()
+    {
+        // magic, version, shape, lowest solved layer, then a count for each layer
+        return 4 + 2 + 6 + 4 + 4 * (this.geometry.size + 1);
+    }
+
+    /**
+     * Reads the header of the file, writing a new one if the file is empty,
+     * and returns the lowest solved layer.
+     */
+    private int readHeader(FileChannel channel) throws IOException
+    {
+        int size = this.geometry.size;
+        ByteBuffer header = ByteBuffer.allocate(this.headerSize());
+
+        if (channel.size() == 0) {
+            this.writeHeader(channel, size + 1);
+            return size + 1;
+        }
+
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() != this.headerSize() || header.getInt() != MAGIC
+            || header.getShort() != VERSION || header.getShort() != this.rows
+            || header.getShort() != this.cols || header.getShort() != this.k) {
+            throw new IOException(this.file + " is not a solver file for this board");
+        }
+        int lowest = header.getInt();
+        for (int n = 0; n <= size; n++) {
+            if (header.getInt() != this.layers[n].length) {
+                throw new IOException(this.file + " is not a solver file for this board");
+            }
+        }
+        if (lowest < 0 || lowest > size + 1) {
+            throw new IOException(this.file + " has an invalid header");
+        }
+
+        return lowest;
+    }
+
+    private void writeHeader(FileChannel channel, int lowest) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(this.headerSize());
+        header.putInt(MAGIC);
+        header.putShort((short)VERSION);
+        header.putShort((short)this.rows);
+        header.putShort((short)this.cols);
+        header.putShort((short)this.k);
+        header.putInt(lowest);
+        for (int[] layer : this.layers) {
+            header.putInt(layer.length);
+        }
+        header.flip();
+
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private byte[] readLayer(FileChannel channel, int n) throws IOException
+    {
+        long offset = this.offsets[n];
+        ByteBuffer buffer = ByteBuffer.allocate((int)(this.offsets[n + 1] - offset));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException(this.file + " is truncated");
+            }
+        }
+
+        return buffer.array();
+    }
+
+    private void writeLayer(FileChannel channel, int n, byte[] values) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(values);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, this.offsets[n] + buffer.position());
+        }
+    }
+
+    /**
+     * Solves the board with the shape given by the first three arguments,
+     * 4x4 with four in a row by default, storing the results in the file
+     * given by the fourth argument, and prints the value of the empty board,
+     * the throughput and the peak memory use.
+     *
+     * @param   args    command line arguments
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int rows = args.length > 2 ? Integer.parseInt(args[0]) : 4;
+        int cols = args.length > 2 ? Integer.parseInt(args[1]) : 4;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        String path = args.length > 3 ? args[3] : rows + "x" + cols + "k" + k + ".rs";
+
+        long start = System.nanoTime();
+        RetrogradeSolver solver = new RetrogradeSolver(rows, cols, k, new File(path));
+        double indexed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d positions found in %.1f s%n", solver.getPositionCount(), indexed);
+
+        solver.solve();
+
+        String[] names = { "loss", "draw", "win" };
+        System.out.printf("solved %d positions at %.0f positions/s, peak heap %.1f MB%n",
+                          solver.getSolvedCount(), solver.getPositionsPerSecond(),
+                          getPeakMemory() / 1048576.0);
+        System.out.println("empty board is a " + names[solver.getValue(new Board(rows, cols, k)) + 1]
+                           + " for X");
+    }
+}
@@ -0,0 +1,299 @@
+package tictactoe;
+
+import java.util.Arrays;
+
+/**
+ * The move selected by a search together with statistics about the search,
+ * returned by {@link AlphaBetaPlayer#analyze(Board)}.
+ * <p>
+ * Values are from the point of view of the player to move. A win is worth
+ * more than {@link Evaluator#MAX_VALUE} and a loss less than its negation;
+ * values in between are estimates from the {@link Evaluator}, and
+ * {@code 0} is a draw or an unknown result.
+ * Values and the selected move are from the deepest iteration that was
+ * completed; the counters cover every iteration, including one that was
+ * stopped early.
+ *
+ * @author Todd Taomae
+ */
+public class SearchResult
+{
+    private int move;
+    private int value;
+    private int[] moveValues;
+    private int depth;
+    private int maxPly;
+    private long nodes;
+    private long leafEvaluations;
+    private long[] cutoffs;
+    /** Nodes searched up to the end of each completed iteration */
+    private long[] iterationNodes;
+    private long tableProbes;
+    private long tableHits;
+    private long elapsed;
+    private boolean cached;
+
+    /**
+     * Constructs a new empty result for a board with the specified number of
+     * spaces, searched to at most the specified depth.
+     *
+     * @param   size        number of spaces on the board
+     * @param   maxDepth    maximum search depth
+     */
+    SearchResult(int size, int maxDepth)
+    {
+        this.move = Board.INVALID_MOVE;
+        this.moveValues = new int[size];
+        Arrays.fill(this.moveValues, Integer.MIN_VALUE);
+        this.cutoffs = new long[maxDepth + 1];
+        this.iterationNodes = new long[maxDepth + 1];
+    }
+
+    /**
+     * Sets the selected move and the values of the moves from the deepest
+     * completed iteration.
+     *
+     * @param   move        selected move
+     * @param   depth       depth of the completed iteration
+     * @param   moves       legal moves of the root
+     * @param   numMoves    number of legal moves
+     * @param   values      value of each move, indexed by position
+     */
+    void setMove(int move, int depth, int[] moves, int numMoves, int[] values)
+    {
+        this.move = move;
+        this.depth = depth;
+        for (int i = 0; i < numMoves; i++) {
+            this.moveValues[moves[i]] = values[moves[i]];
+        }
+        this.value = move == Board.INVALID_MOVE || depth == 0 ? 0 : values[move];
+    }
+
+    /**
+     * Adds the counters of one part of a search. May be called by several
+     * threads of a parallel search.
+     *
+     * @param   leaves      number of leaf evaluations
+     * @param   cutoffs     number of cutoffs at each ply
+     * @param   maxPly      deepest ply reached
+     * @param   probes      number of transposition table probes
+     * @param   hits        number of transposition table hits
+     */
+    synchronized void add(long leaves, long[] cutoffs, int maxPly, long probes, long hits)
+    {
+        this.leafEvaluations += leaves;
+        for (int i = 0; i < cutoffs.length && i < this.cutoffs.length; i++) {
+            this.cutoffs[i] += cutoffs[i];
+        }
+        this.maxPly = Math.max(this.maxPly, maxPly);
+        this.tableProbes += probes;
+        this.tableHits += hits;
+    }
+
+    /**
+     * Records the number of nodes searched by the end of the specified
+     * iteration, including those of every earlier iteration.
+     *
+     * @param   depth   depth of the completed iteration
+     * @param   nodes   number of nodes searched so far
+     */
+    void completeIteration(int depth, long nodes)
+    {
+        this.iterationNodes[depth] = nodes;
+    }
+
+    /**
+     * Sets the totals that are only known at the end of the search.
+     *
+     * @param   nodes       number of nodes searched
+     * @param   elapsed     wall time of the search in nanoseconds
+     */
+    void finish(long nodes, long elapsed)
+    {
+        this.nodes = nodes;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Records that the values were found in a {@link MoveCache} instead of
+     * being searched.
+     */
+    void setCached()
+    {
+        this.cached = true;
+    }
+
+    /**
+     * Returns whether or not the values were found in a {@link MoveCache}
+     * instead of being searched, in which case all counters are zero.
+     *
+     * @return  {@code true} if the values came from a cache
+     */
+    public boolean isCached()
+    {
+        return this.cached;
+    }
+
+    /**
+     * Returns the selected move.
+     *
+     * @return  the selected move
+     */
+    public int getMove()
+    {
+        return this.move;
+    }
+
+    /**
+     * Returns the value of the selected move.
+     *
+     * @return  the value of the selected move
+     */
+    public int getValue()
+    {
+        return this.value;
+    }
+
+    /**
+     * Returns the value of the specified move.
+     *
+     * @param   move    position of the move
+     * @return  the value of the move, or {@code Integer.MIN_VALUE} if the
+     *          move is not legal or was not searched
+     */
+    public int getValue(int move)
+    {
+        return this.moveValues[move];
+    }
+
+    /**
+     * Returns the depth of the deepest iteration that was completed, or
+     * {@code 0} if the move was selected without a search.
+     *
+     * @return  the completed search depth
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    /**
+     * Returns the greatest distance from the root of any node searched.
+     *
+     * @return  the deepest ply reached
+     */
+    public int getMaxPly()
+    {
+        return this.maxPly;
+    }
+
+    /**
+     * Returns the number of nodes searched.
+     *
+     * @return  the number of nodes searched
+     */
+    public long getNodes()
+    {
+        return this.nodes;
+    }
+
+    /**
+     * Returns the number of nodes which were evaluated because the game was
+     * over or the maximum depth was reached.
+     *
+     * @return  the number of leaf evaluations
+     */
+    public long getLeafEvaluations()
+    {
+        return this.leafEvaluations;
+    }
+
+    /**
+     * Returns the number of nodes at the specified distance from the root
+     * whose remaining moves were skipped because of a cutoff.
+     *
+     * @param   ply     distance from the root
+     * @return  the number of cutoffs at the ply
+     */
+    public long getCutoffs(int ply)
+    {
+        return ply < this.cutoffs.length ? this.cutoffs[ply] : 0;
+    }
+
+    /**
+     * Returns the total number of cutoffs at every ply.
+     *
+     * @return  the total number of cutoffs
+     */
+    public long getCutoffs()
+    {
+        long total = 0;
+        for (long c : this.cutoffs) {
+            total += c;
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the effective branching factor: the number of nodes searched by
+     * the deepest completed iteration divided by the number searched by the
+     * iteration before it, or by the root alone if there was only one. This
+     * is how much more each extra ply of depth costs, after the move ordering
+     * and transposition table have taken the earlier iterations into account.
+     *
+     * @return  the effective branching factor, or {@code 0} if there was no search
+     */
+    public double getBranchingFactor()
+    {
+        if (this.depth == 0) {
+            return 0.0;
+        }
+
+        long last = this.iterationNodes[this.depth] - this.iterationNodes[this.depth - 1];
+        long previous = this.depth == 1
+                      ? 1
+                      : this.iterationNodes[this.depth - 1] - this.iterationNodes[this.depth - 2];
+        return previous == 0 ? 0.0 : (double)last / previous;
+    }
+
+    /**
+     * Returns the number of transposition table probes.
+     *
+     * @return  the number of table probes, or {@code 0} if there is no table
+     */
+    public long getTableProbes()
+    {
+        return this.tableProbes;
+    }
+
+    /**
+     * Returns the number of transposition table probes which found an entry.
+     *
+     * @return  the number of table hits, or {@code 0} if there is no table
+     */
+    public long getTableHits()
+    {
+        return this.tableHits;
+    }
+
+    /**
+     * Returns the wall time of the search in nanoseconds.
+     *
+     * @return  the wall time of the search
+     */
+    public long getElapsedNanos()
+    {
+        return this.elapsed;
+    }
+
+    public String toString()
+    {
+        return String.format("move %d, value %d, depth %d%s (max ply %d), %d nodes, %d leaves, "
+                             + "%d cutoffs, EBF %.2f, %d/%d table hits, %.3f ms",
+                             this.move, this.value, this.depth, this.cached ? " cached" : "",
+                             this.maxPly, this.nodes,
+                             this.leafEvaluations, this.getCutoffs(), this.getBranchingFactor(),
+                             this.tableHits, this.tableProbes, this.elapsed / 1e6);
+    }
+}
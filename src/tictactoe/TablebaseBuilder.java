@@ -0,0 +1,135 @@
+package tictactoe;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Solves every position reachable from an empty {@code Board} and writes the
+ * results to a tablebase file which can be used by a {@link TablebasePlayer}.
+ * <p>
+ * The file starts with an 8 byte header: a magic number, the format version and
+ * the size of each entry. It is followed by one 2 byte entry for every
+ * assignment of marks to the nine spaces, indexed as described by
+ * {@link TablebasePlayer#indexOf(Board)}. The low nine bits of an entry are a
+ * mask of the best moves and the next two bits are the value of the position
+ * for the player to move, plus two. Unreachable positions have an entry of zero.
+ *
+ * @author Todd Taomae
+ */
+public class TablebaseBuilder
+{
+    /** Value stored for positions which have not been solved */
+    private static final int UNSOLVED = Integer.MIN_VALUE;
+
+    private int[] entries;
+    private int solved;
+
+    /**
+     * Constructs a new builder and solves every reachable position.
+     */
+    public TablebaseBuilder()
+    {
+        this.entries = new int[TablebasePlayer.NUM_ENTRIES];
+        Arrays.fill(this.entries, UNSOLVED);
+        this.solved = 0;
+
+        this.solve(new Board());
+    }
+
+    /**
+     * Returns the number of reachable positions that were solved.
+     *
+     * @return  the number of reachable positions
+     */
+    public int getPositionCount()
+    {
+        return this.solved;
+    }
+
+    /**
+     * Solves the specified {@code Board} and every position reachable from it,
+     * skipping positions which have already been solved.
+     *
+     * @param   board   board to solve
+     * @return  the value of the board for the player to move
+     */
+    private int solve(Board board)
+    {
+        int index = TablebasePlayer.indexOf(board);
+        if (this.entries[index] != UNSOLVED) {
+            return (this.entries[index] >> TablebasePlayer.VALUE_SHIFT) - 2;
+        }
+
+        int value;
+        int bestMoves = 0;
+        Mark winner = board.getWinner();
+
+        if (winner == Mark.DRAW) {
+            value = TablebasePlayer.DRAW;
+        } else if (winner != Mark.NONE) {
+            // the previous player made the winning move
+            value = TablebasePlayer.LOSS;
+        } else {
+            value = TablebasePlayer.LOSS - 1;
+            int[] moves = new int[9];
+            int numMoves = board.getLegalMoves(moves);
+
+            for (int i = 0; i < numMoves; i++) {
+                board.makeMove(moves[i]);
+                int v = -this.solve(board);
+                board.undo();
+
+                if (v > value) {
+                    value = v;
+                    bestMoves = 1 << moves[i];
+                } else if (v == value) {
+                    bestMoves |= 1 << moves[i];
+                }
+            }
+        }
+
+        this.entries[index] = ((value + 2) << TablebasePlayer.VALUE_SHIFT) | bestMoves;
+        this.solved++;
+
+        return value;
+    }
+
+    /**
+     * Writes the tablebase to the specified file.
+     *
+     * @param   path    path of the file to write
+     * @throws  IOException if the file cannot be written.
+     */
+    public void write(String path) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(path)));
+        try {
+            out.writeInt(TablebasePlayer.MAGIC);
+            out.writeShort(TablebasePlayer.VERSION);
+            out.writeShort(2);
+
+            for (int entry : this.entries) {
+                out.writeShort(entry == UNSOLVED ? 0 : entry);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Solves every position and writes the tablebase to the path given as the
+     * first argument, or to {@code tictactoe.tb} if no path is given.
+     *
+     * @param   args    command line arguments
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String path = args.length > 0 ? args[0] : "tictactoe.tb";
+
+        TablebaseBuilder builder = new TablebaseBuilder();
+        builder.write(path);
+
+        System.out.println("Solved " + builder.getPositionCount() + " positions, wrote " + path);
+    }
+}
@@ -0,0 +1,161 @@
+package tictactoe;
+
+import java.awt.event.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Implementation of the {@code Player} interface which plays perfectly by
+ * looking up each move in a tablebase file written by {@link TablebaseBuilder}.
+ * <p>
+ * The file is memory-mapped, so each move is a single read from the mapping
+ * and the file is shared between all players which use it. Like
+ * {@link AlphaBetaPlayer}, a random move is selected from all moves which are
+ * equally good.
+ * <p>
+ * Tablebases only cover the standard 3x3 board.
+ *
+ * @author Todd Taomae
+ */
+public class TablebasePlayer implements Player
+{
+    /** Identifies a tablebase file */
+    static final int MAGIC = 0x54544242;
+    /** Version of the file format */
+    static final int VERSION = 1;
+    /** Number of bytes before the first entry */
+    static final int HEADER_SIZE = 8;
+    /** Number of entries, one for each assignment of marks to the nine spaces */
+    static final int NUM_ENTRIES = 19683;
+
+    /** Value of a position which is lost for the player to move */
+    public static final int LOSS = -1;
+    /** Value of a position which is drawn */
+    public static final int DRAW = 0;
+    /** Value of a position which is won for the player to move */
+    public static final int WIN = 1;
+
+    // layout of each entry
+    static final int MOVES_MASK = 0x1FF;
+    static final int VALUE_SHIFT = 9;
+
+    private MappedByteBuffer table;
+    private Random rng;
+
+    /**
+     * Constructs a new player which uses the tablebase at the specified path.
+     *
+     * @param   path    path of the tablebase file
+     * @throws  IOException if the file cannot be read or is not a tablebase.
+     */
+    public TablebasePlayer(String path) throws IOException
+    {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            if (channel.size() != HEADER_SIZE + 2L * NUM_ENTRIES) {
+                throw new IOException(path + " is not a tablebase file");
+            }
+            // the mapping remains valid after the channel is closed
+            this.table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+
+        if (this.table.getInt(0) != MAGIC || this.table.getShort(4) != VERSION) {
+            throw new IOException(path + " is not a tablebase file");
+        }
+
+        this.rng = new Random();
+    }
+
+    /**
+     * Sets the random number generator used to choose between equally good
+     * moves, so that games can be reproduced.
+     *
+     * @param   rng     random number generator to use
+     */
+    public void setRandom(Random rng)
+    {
+        this.rng = rng;
+    }
+
+    /**
+     * Returns a random move from the best moves for the specified {@code Board}.
+     *
+     * @param   b   board to evaluate
+     * @return  the selected move for the specified {@code Board}, or
+     *          {@link Board#INVALID_MOVE} if the game is over
+     * @throws  IllegalArgumentException if the board is not a standard 3x3 board.
+     */
+    public int getMove(Board b)
+    {
+        int moves = this.entryFor(b) & MOVES_MASK;
+        if (moves == 0) {
+            return Board.INVALID_MOVE;
+        }
+
+        // select the n-th best move
+        for (int n = this.rng.nextInt(Integer.bitCount(moves)); n > 0; n--) {
+            moves &= moves - 1;
+        }
+
+        return Integer.numberOfTrailingZeros(moves);
+    }
+
+    /**
+     * Returns the value of the specified {@code Board} for the player to move,
+     * assuming perfect play by both players.
+     *
+     * @param   b   board to evaluate
+     * @return  one of {@link #WIN}, {@link #DRAW} or {@link #LOSS}
+     * @throws  IllegalArgumentException if the board is not a standard 3x3 board.
+     */
+    public int getValue(Board b)
+    {
+        return (this.entryFor(b) >> VALUE_SHIFT) - 2;
+    }
+
+    /**
+     * Returns the tablebase entry for the specified {@code Board}.
+     *
+     * @param   b   board to look up
+     * @return  the entry for the board
+     */
+    private int entryFor(Board b)
+    {
+        return this.table.getShort(HEADER_SIZE + 2 * indexOf(b)) & 0xFFFF;
+    }
+
+    /**
+     * Returns the index of the specified {@code Board} in a tablebase. The
+     * index treats the board as a base-3 number, with the top-left space as the
+     * least significant digit and empty, X and O as the digits 0, 1 and 2.
+     *
+     * @param   b   board to index
+     * @return  the index of the board
+     */
+    static int indexOf(Board b)
+    {
+        if (b.getRows() != 3 || b.getColumns() != 3 || b.getWinLength() != 3) {
+            throw new IllegalArgumentException("tablebases only cover 3x3 boards");
+        }
+
+        int index = 0;
+        for (int i = 8; i >= 0; i--) {
+            index *= 3;
+            Mark m = b.markAt(i);
+            if (m == Mark.X) {
+                index += 1;
+            } else if (m == Mark.O) {
+                index += 2;
+            }
+        }
+
+        return index;
+    }
+
+    public void actionPerformed(ActionEvent ae) { /* do nothing */ }
+}
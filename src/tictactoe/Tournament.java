@@ -0,0 +1,397 @@
+package tictactoe;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Plays a large number of games between two types of {@code Player} without
+ * printing, spread over several threads.
+ * <p>
+ * The players are called "A" and "B". A plays X in even numbered games and O
+ * in odd numbered games. New players are created for each game from a
+ * {@link PlayerFactory}, which is given a random number generator seeded from
+ * the tournament seed and the game number. If the moves of the players depend
+ * only on the board and the generator, a tournament with the same seed gives
+ * the same results regardless of the number of threads. That is not the case
+ * for depth-limited {@link AlphaBetaPlayer}s which share a transposition
+ * table, since the values they find depend on which positions other threads
+ * have already stored in it.
+ * <p>
+ * Unlike {@link Driver}, the board is not copied before each move, so players
+ * must not modify the board passed to {@link Player#getMove(Board)}. A player
+ * which makes an illegal move loses the game.
+ *
+ * @author Todd Taomae
+ */
+public class Tournament
+{
+    /** Number of games claimed by a thread at a time */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * Creates the players of a {@code Tournament}.
+     */
+    public interface PlayerFactory
+    {
+        /**
+         * Returns a new player for one game.
+         *
+         * @param   rng     random number generator for the player to use
+         * @return  a new player
+         */
+        public Player newPlayer(Random rng);
+    }
+
+    private PlayerFactory playerA;
+    private PlayerFactory playerB;
+    private int rows;
+    private int cols;
+    private int k;
+    private int threads;
+    private long seed;
+    private GameRecordWriter recorder;
+
+    /**
+     * Constructs a new {@code Tournament} on the standard 3x3 board which uses
+     * one thread for each available processor.
+     *
+     * @param   a   factory for player A
+     * @param   b   factory for player B
+     */
+    public Tournament(PlayerFactory a, PlayerFactory b)
+    {
+        this.playerA = a;
+        this.playerB = b;
+        this.rows = 3;
+        this.cols = 3;
+        this.k = 3;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.seed = System.nanoTime();
+    }
+
+    /**
+     * Sets the shape of the board that games are played on.
+     *
+     * @param   rows    number of rows of the board
+     * @param   cols    number of columns of the board
+     * @param   k       number of marks in a row needed to win
+     */
+    public void setBoardShape(int rows, int cols, int k)
+    {
+        // fail now rather than in every thread
+        new Board(rows, cols, k);
+
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+    }
+
+    /**
+     * Sets the number of threads to play games on.
+     *
+     * @param   threads     number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Sets the seed that the random number generator of each game is derived from.
+     *
+     * @param   seed    seed of the tournament
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the writer that every game is written to, in the order the games
+     * finish. Games lost by an illegal move are written as unfinished.
+     *
+     * @param   recorder    writer to record games with, or {@code null} to
+     *                      not record games
+     */
+    public void setRecorder(GameRecordWriter recorder)
+    {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Plays the specified number of games and returns the results.
+     *
+     * @param   games   number of games to play
+     * @return  the results of the games
+     * @throws  InterruptedException if the calling thread is interrupted while
+     *              waiting for the games to finish.
+     * @throws  UncheckedIOException if a game cannot be recorded.
+     */
+    public Result play(final long games) throws InterruptedException
+    {
+        final Result result = new Result();
+        final AtomicLong nextGame = new AtomicLong();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        Thread[] workers = new Thread[this.threads];
+        long start = System.nanoTime();
+
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread("tournament-" + i) {
+                public void run() {
+                    try {
+                        long first;
+                        while ((first = nextGame.getAndAdd(BATCH_SIZE)) < games
+                               && failure.get() == null) {
+                            long last = Math.min(first + BATCH_SIZE, games);
+                            for (long game = first; game < last; game++) {
+                                playGame(game, result);
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            workers[i].start();
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        result.elapsed = System.nanoTime() - start;
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        return result;
+    }
+
+    /**
+     * Plays the specified game and adds its result.
+     *
+     * @param   game    number of the game
+     * @param   result  results to add to
+     */
+    private void playGame(long game, Result result)
+    {
+        Random rng = new Random(mix(this.seed + game));
+        Player a = this.playerA.newPlayer(rng);
+        Player b = this.playerB.newPlayer(rng);
+        boolean aIsX = (game & 1) == 0;
+        Player x = aIsX ? a : b;
+        Player o = aIsX ? b : a;
+
+        Board board = new Board(this.rows, this.cols, this.k);
+        Mark winner;
+
+        while ((winner = board.getWinner()) == Mark.NONE) {
+            Mark current = board.getCurrentPlayer();
+            int move = current == Mark.X ? x.getMove(board) : o.getMove(board);
+
+            try {
+                board.play(move);
+            } catch (IllegalMoveException e) {
+                winner = current.opposite();
+                result.forfeits.increment();
+                break;
+            } catch (IllegalArgumentException e) {
+                winner = current.opposite();
+                result.forfeits.increment();
+                break;
+            }
+        }
+
+        if (winner == Mark.DRAW) {
+            result.draws.increment();
+        } else if ((winner == Mark.X) == aIsX) {
+            result.winsA.increment();
+        } else {
+            result.winsB.increment();
+        }
+        result.moves.add(board.getTurn());
+
+        if (this.recorder != null) {
+            try {
+                this.recorder.write(board);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns a well mixed 64-bit value from the specified value, so that
+     * consecutive games have unrelated seeds.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Results of a {@code Tournament}. The counts are kept in striped counters
+     * so that threads do not contend when adding results.
+     */
+    public static class Result
+    {
+        private LongAdder winsA = new LongAdder();
+        private LongAdder winsB = new LongAdder();
+        private LongAdder draws = new LongAdder();
+        private LongAdder forfeits = new LongAdder();
+        private LongAdder moves = new LongAdder();
+        private long elapsed;
+
+        /**
+         * Returns the number of games won by player A.
+         *
+         * @return  the number of games won by player A
+         */
+        public long getWinsA()
+        {
+            return this.winsA.sum();
+        }
+
+        /**
+         * Returns the number of games won by player B.
+         *
+         * @return  the number of games won by player B
+         */
+        public long getWinsB()
+        {
+            return this.winsB.sum();
+        }
+
+        /**
+         * Returns the number of drawn games.
+         *
+         * @return  the number of drawn games
+         */
+        public long getDraws()
+        {
+            return this.draws.sum();
+        }
+
+        /**
+         * Returns the number of games which were lost by an illegal move.
+         * These games are also counted as wins for the other player.
+         *
+         * @return  the number of games lost by an illegal move
+         */
+        public long getForfeits()
+        {
+            return this.forfeits.sum();
+        }
+
+        /**
+         * Returns the total number of games played.
+         *
+         * @return  the total number of games played
+         */
+        public long getGames()
+        {
+            return this.getWinsA() + this.getWinsB() + this.getDraws();
+        }
+
+        /**
+         * Returns the total number of moves played in all games.
+         *
+         * @return  the total number of moves played
+         */
+        public long getMoves()
+        {
+            return this.moves.sum();
+        }
+
+        /**
+         * Returns the time taken to play the games in nanoseconds.
+         *
+         * @return  the time taken to play the games
+         */
+        public long getElapsedNanos()
+        {
+            return this.elapsed;
+        }
+
+        /**
+         * Returns the number of games played per second.
+         *
+         * @return  the number of games played per second
+         */
+        public double getGamesPerSecond()
+        {
+            return this.elapsed == 0 ? 0.0 : this.getGames() * 1e9 / this.elapsed;
+        }
+
+        public String toString()
+        {
+            return String.format("%d games: A won %d, B won %d, %d draws (%d forfeits); "
+                                 + "%.3f s, %.0f games/s",
+                                 this.getGames(), this.getWinsA(), this.getWinsB(),
+                                 this.getDraws(), this.getForfeits(),
+                                 this.elapsed / 1e9, this.getGamesPerSecond());
+        }
+    }
+
+    /**
+     * Plays a tournament between an {@code AlphaBetaPlayer} and a random player
+     * and prints the results.
+     * <p>
+     * Arguments: number of games, depth of the {@code AlphaBetaPlayer}, number
+     * of threads, seed and a file to record the games to. All arguments are
+     * optional.
+     *
+     * @param   args    command line arguments
+     */
+    public static void main(String[] args) throws InterruptedException, IOException
+    {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+        final int depth = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        // players share cached values only if they share the evaluator
+        final Evaluator evaluator = new LinePotentialEvaluator();
+        final MoveCache cache = MoveCache.getShared();
+
+        Tournament t = new Tournament(
+            new PlayerFactory() {
+                public Player newPlayer(Random rng) {
+                    // without a transposition table the values of the moves,
+                    // and so the results, do not depend on the other threads
+                    AlphaBetaPlayer p = new AlphaBetaPlayer(depth, null);
+                    p.setEvaluator(evaluator);
+                    p.setMoveCache(cache);
+                    p.setRandom(rng);
+                    return p;
+                }
+            },
+            new PlayerFactory() {
+                public Player newPlayer(Random rng) {
+                    RandomPlayer p = new RandomPlayer();
+                    p.setRandom(rng);
+                    return p;
+                }
+            });
+        if (args.length > 2) {
+            t.setThreads(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            t.setSeed(Long.parseLong(args[3]));
+        }
+
+        GameRecordWriter recorder = null;
+        if (args.length > 4) {
+            recorder = new GameRecordWriter(new FileOutputStream(args[4]), 3, 3, 3);
+            t.setRecorder(recorder);
+        }
+        try {
+            System.out.println(t.play(games));
+        } finally {
+            if (recorder != null) {
+                recorder.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package tictactoe;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size hash table of search results keyed by Zobrist hash.
+ * <p>
+ * Entries are packed into a pair of primitive {@code long} arrays so that the
+ * table uses a fixed amount of memory and never allocates after construction.
+ * Each entry stores a value, the depth it was searched to, whether the value is
+ * exact or a bound, the best move found and the generation of the search that
+ * stored it. The key is stored XOR'd with the entry data so that a torn write
+ * is detected as a miss rather than returning another position's data.
+ * <p>
+ * When two positions map to the same slot, the new entry replaces the old one
+ * if the old one is from an earlier search or was not searched deeper.
+ *
+ * @author Todd Taomae
+ */
+public class TranspositionTable
+{
+    /** Flag for an entry whose value is exact */
+    public static final int EXACT = 1;
+    /** Flag for an entry whose value is a lower bound */
+    public static final int LOWER_BOUND = 2;
+    /** Flag for an entry whose value is an upper bound */
+    public static final int UPPER_BOUND = 3;
+
+    /** Number of bytes used by each entry */
+    private static final int ENTRY_BYTES = 16;
+
+    // layout of the data word
+    private static final int DEPTH_SHIFT = 32;
+    private static final int FLAG_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int GENERATION_SHIFT = 58;
+    private static final int GENERATION_MASK = 0x3F;
+
+    private long[] keys;
+    private long[] data;
+    private int indexMask;
+    private int generation;
+
+    private LongAdder hits;
+    private LongAdder misses;
+    private LongAdder stores;
+
+    /**
+     * Constructs a new table which uses at most the specified number of megabytes.
+     *
+     * @param   megabytes   maximum size of the table in megabytes
+     * @throws  IllegalArgumentException if the size is not positive.
+     */
+    public TranspositionTable(int megabytes)
+    {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("megabytes = " + megabytes + ": must be positive");
+        }
+
+        // round down to a power of two so that the index is a simple mask
+        long entries = Long.highestOneBit(((long)megabytes << 20) / ENTRY_BYTES);
+        entries = Math.min(entries, 1 << 30);
+
+        this.keys = new long[(int)entries];
+        this.data = new long[(int)entries];
+        this.indexMask = (int)entries - 1;
+        this.generation = 0;
+
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.stores = new LongAdder();
+    }
+
+    /**
+     * Returns the entry for the specified key, or {@code 0} if there is none.
+     * The fields of a non-zero entry can be read with {@link #valueOf(long)},
+     * {@link #depthOf(long)}, {@link #flagOf(long)} and {@link #moveOf(long)}.
+     *
+     * @param   key     Zobrist hash of the position
+     * @return  the packed entry for the key, or {@code 0} if there is none
+     */
+    public long probe(long key)
+    {
+        int index = (int)key & this.indexMask;
+        long entry = this.data[index];
+
+        if (entry != 0L && (this.keys[index] ^ entry) == key) {
+            return entry;
+        } else {
+            return 0L;
+        }
+    }
+
+    /**
+     * Stores a search result for the specified key, subject to the replacement policy.
+     *
+     * @param   key     Zobrist hash of the position
+     * @param   value   value of the position
+     * @param   depth   depth that the position was searched to
+     * @param   flag    one of {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     * @param   move    best move found, or {@link Board#INVALID_MOVE} if there is none
+     */
+    public void store(long key, int value, int depth, int flag, int move)
+    {
+        int index = (int)key & this.indexMask;
+        long old = this.data[index];
+
+        if (old != 0L
+            && (this.keys[index] ^ old) != key
+            && generationOf(old) == this.generation
+            && depthOf(old) > depth) {
+            // keep the deeper entry from the current search
+            return;
+        }
+
+        long entry = (value & 0xFFFFFFFFL)
+                   | ((long)(Math.min(depth, 0xFF)) << DEPTH_SHIFT)
+                   | ((long)flag << FLAG_SHIFT)
+                   | ((long)((move + 1) & 0xFFFF) << MOVE_SHIFT)
+                   | ((long)this.generation << GENERATION_SHIFT);
+
+        this.data[index] = entry;
+        this.keys[index] = key ^ entry;
+    }
+
+    /**
+     * Adds the probes and stores made by a search to the counters of this
+     * table. Searches count their own probes and stores and add them once
+     * when they finish, so that the counters are not contended on every probe.
+     *
+     * @param   probes  number of probes made by the search
+     * @param   found   number of those probes which found an entry
+     * @param   stored  number of stores made by the search
+     */
+    void addStatistics(long probes, long found, long stored)
+    {
+        this.hits.add(found);
+        this.misses.add(probes - found);
+        this.stores.add(stored);
+    }
+
+    /**
+     * Marks the start of a new search. Entries from earlier searches are kept,
+     * but may be replaced regardless of their depth.
+     */
+    public void newSearch()
+    {
+        this.generation = (this.generation + 1) & GENERATION_MASK;
+    }
+
+    /**
+     * Removes all entries from this table and resets its counters.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.data, 0L);
+        this.hits.reset();
+        this.misses.reset();
+        this.stores.reset();
+    }
+
+    /**
+     * Returns the number of entries this table can hold.
+     *
+     * @return  the number of entries this table can hold
+     */
+    public int getCapacity()
+    {
+        return this.data.length;
+    }
+
+    /**
+     * Returns the number of probes which found an entry, as of the last search
+     * which finished.
+     *
+     * @return  the number of cache hits
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * Returns the number of probes which did not find an entry, as of the
+     * last search which finished.
+     *
+     * @return  the number of cache misses
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * Returns the number of entries which have been written, as of the last
+     * search which finished.
+     *
+     * @return  the number of stores
+     */
+    public long getStores()
+    {
+        return this.stores.sum();
+    }
+
+    /**
+     * Returns the fraction of probes which found an entry.
+     *
+     * @return  the hit rate, or {@code 0} if there have been no probes
+     */
+    public double getHitRate()
+    {
+        long h = this.getHits();
+        long total = h + this.getMisses();
+        return total == 0 ? 0.0 : (double)h / total;
+    }
+
+    /**
+     * Returns the value of the specified entry.
+     *
+     * @param   entry   entry returned by {@link #probe(long)}
+     * @return  the value of the entry
+     */
+    public static int valueOf(long entry)
+    {
+        return (int)entry;
+    }
+
+    /**
+     * Returns the search depth of the specified entry.
+     *
+     * @param   entry   entry returned by {@link #probe(long)}
+     * @return  the search depth of the entry
+     */
+    public static int depthOf(long entry)
+    {
+        return (int)(entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * Returns the flag of the specified entry.
+     *
+     * @param   entry   entry returned by {@link #probe(long)}
+     * @return  one of {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     */
+    public static int flagOf(long entry)
+    {
+        return (int)(entry >>> FLAG_SHIFT) & 0x3;
+    }
+
+    /**
+     * Returns the best move of the specified entry.
+     *
+     * @param   entry   entry returned by {@link #probe(long)}
+     * @return  the best move, or {@link Board#INVALID_MOVE} if there is none
+     */
+    public static int moveOf(long entry)
+    {
+        return ((int)(entry >>> MOVE_SHIFT) & 0xFFFF) - 1;
+    }
+
+    private static int generationOf(long entry)
+    {
+        return (int)(entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+}
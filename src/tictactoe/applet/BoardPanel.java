@@ -3,6 +3,8 @@ import tictactoe.*;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 import javax.swing.*;
 
 /**
@@ -17,6 +19,21 @@ import javax.swing.*;
 @SuppressWarnings("serial")
 public class BoardPanel extends JPanel implements Runnable
 {
+    /** Threads shared by the games of every panel */
+    private static final ExecutorService GAMES = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "tictactoe-game");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    /** Runs tasks on the event dispatch thread */
+    private static final Executor EVENT_DISPATCH = new Executor() {
+        public void execute(Runnable r) {
+            SwingUtilities.invokeLater(r);
+        }
+    };
+
     private Driver driver;
     private Player playerX;
     private Player playerO;
@@ -51,6 +68,47 @@ public class BoardPanel extends JPanel implements Runnable
             this.add(b);
 
         }
+
+        // the game is played on another thread, so the buttons are updated
+        // on the event dispatch thread, skipping moves if it falls behind
+        this.driver.addGameListener(new AsyncGameListener(new GameListener() {
+            public void gameStarted(GameEvent e) {
+                update(e, true);
+            }
+            public void movePlayed(GameEvent e) {
+                update(e, true);
+            }
+            public void gameOver(GameEvent e) {
+                update(e, false);
+            }
+        }, EVENT_DISPATCH));
+    }
+
+    /**
+     * Updates the buttons to show the board of the specified event. Must be
+     * called on the event dispatch thread.
+     *
+     * @param   e           event with the board to show
+     * @param   playing     whether empty spaces may be selected
+     */
+    private void update(GameEvent e, boolean playing)
+    {
+        for (int i = 0; i < this.spaces.length; i++) {
+            switch(e.markAt(i)) {
+                case X:
+                    this.spaces[i].setText("X");
+                    this.spaces[i].setEnabled(false);
+                    break;
+                case O:
+                    this.spaces[i].setText("O");
+                    this.spaces[i].setEnabled(false);
+                    break;
+                case NONE:
+                    this.spaces[i].setText("");
+                    this.spaces[i].setEnabled(playing);
+                    break;
+            }
+        }
     }
 
     /**
@@ -64,67 +122,56 @@ public class BoardPanel extends JPanel implements Runnable
     }
 
     /**
-     * Starts a game and updates this {@code BoardPanel} at the end of each turn.
+     * Starts a game on the threads shared by every panel and returns without
+     * waiting for it. The buttons are updated by a {@link GameListener} as the
+     * game is played.
      * <p>
-     * Notifies all threads waiting on this object at the start and end of each execution.
+     * Notifies all threads waiting on this object at the start and end of each game.
+     *
+     * @return  future completed with the winner once the game is over and the
+     *          players have stopped pondering
      */
-    public void run()
+    public CompletableFuture<Mark> play()
     {
-        // clear and enable buttons
-        for (JButton b : this.spaces) {
-            b.setText("");
-            b.setEnabled(true);
-        }
-
-        this.driver.setPlayerX(this.playerX);
-        this.driver.setPlayerO(this.playerO);
+        final Player x = this.playerX;
+        final Player o = this.playerO;
+        this.driver.setPlayerX(x);
+        this.driver.setPlayerO(o);
         this.driver.newBoard();
-        new Thread(this.driver).start();
+        CompletableFuture<Mark> game = this.driver.playAsync(GAMES);
 
         // notify for start of game
         synchronized(this) {
             this.notifyAll();
         }
 
-        synchronized(this.driver) {
-            while (this.driver.getWinner() == Mark.NONE) {
-                try {
-                    // wait until driver notifies after a move is played
-                    this.driver.wait();
-                } catch (InterruptedException ie) {
-                    // if thread is interruped, end game
-                    System.out.println("thread interrupted");
-                    break;
+        return game.whenComplete(new BiConsumer<Mark, Throwable>() {
+            public void accept(Mark winner, Throwable failure) {
+                if (failure != null) {
+                    System.out.println("game failed: " + failure);
                 }
 
-                // update buttons
-                Mark[] state = this.driver.getState();
-                for (int i = 0; i < state.length; i++) {
-                    switch(state[i]) {
-                        case X:
-                            this.spaces[i].setText("X");
-                            this.spaces[i].setEnabled(false);
-                            break;
-                        case O:
-                            this.spaces[i].setText("O");
-                            this.spaces[i].setEnabled(false);
-                            break;
-                        case NONE:
-                            this.spaces[i].setText("");
-                            this.spaces[i].setEnabled(true);
-                            break;
-                    }
+                stopPondering(x);
+                stopPondering(o);
+
+                // notify for end of game
+                synchronized(BoardPanel.this) {
+                    BoardPanel.this.notifyAll();
                 }
             }
-        }
-
-        for (JButton b : this.spaces) {
-            b.setEnabled(false);
-        }
+        });
+    }
 
-        // notify for end of game
-        synchronized(this) {
-            this.notifyAll();
+    /**
+     * Plays a game and waits for it to finish. Prefer {@link #play()}, which
+     * does not hold the calling thread for the length of the game.
+     */
+    public void run()
+    {
+        try {
+            this.play().join();
+        } catch (CompletionException e) {
+            // already reported
         }
     }
 
@@ -136,6 +183,8 @@ public class BoardPanel extends JPanel implements Runnable
      */
     public void newPlayers(Player x, Player o)
     {
+        stopPondering(this.playerX);
+        stopPondering(this.playerO);
         this.playerX = x;
         this.playerO = o;
 
@@ -146,7 +195,17 @@ public class BoardPanel extends JPanel implements Runnable
         }
     }
 
-
+    /**
+     * Stops the background search of the specified player, if it has one.
+     *
+     * @param   p   player whose game is over
+     */
+    private static void stopPondering(Player p)
+    {
+        if (p instanceof PonderingPlayer) {
+            ((PonderingPlayer)p).stopPondering();
+        }
+    }
 
     public static void main(String[] args)
     {
@@ -162,12 +221,12 @@ public class BoardPanel extends JPanel implements Runnable
         JFrame frame = new JFrame("TicTacToe");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        BoardPanel p = new BoardPanel(new MousePlayer(), new AlphaBetaPlayer(10));
+        BoardPanel p = new BoardPanel(new MousePlayer(), new PonderingPlayer(new AlphaBetaPlayer(10)));
         frame.add(p);
 
         frame.pack();
         frame.setVisible(true);
 
-        new Thread(p).start();
+        p.play();
     }
 }
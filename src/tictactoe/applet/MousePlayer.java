@@ -3,6 +3,7 @@ import tictactoe.*;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.*;
 import javax.swing.*;
 
 /**
@@ -14,12 +15,17 @@ import javax.swing.*;
  * to correctly set the action command and add this as an {@code ActionListener}.
  * The action commands should be set to a string representation of the
  * index of the space it represents.
+ * <p>
+ * As an {@code AsyncPlayer}, no thread waits for the click; the future
+ * returned by {@link #requestMove(Board)} is completed by the click itself.
  *
  * @author Todd Taomae
  */
-class MousePlayer implements Player, ActionListener
+class MousePlayer implements Player, AsyncPlayer, ActionListener
 {
     private int myMove;
+    /** Move requested but not yet selected, or {@code null} */
+    private CompletableFuture<Integer> pending;
 
     /**
      * Returns the selected move for the specified {@code Board}.
@@ -29,18 +35,29 @@ class MousePlayer implements Player, ActionListener
      */
     public int getMove(Board b)
     {
-        this.myMove = Board.INVALID_MOVE;
-
-        // wait until actionPerformed() notifies
+        // wait until actionPerformed() completes the move
         try {
-            synchronized(this) {
-                this.wait();
-            }
+            return this.requestMove(b).get();
         } catch (InterruptedException ie) {
-            // do nothing?
+            return Board.INVALID_MOVE;
+        } catch (ExecutionException ee) {
+            return Board.INVALID_MOVE;
         }
+    }
 
-        return this.myMove;
+    /**
+     * Returns a future which is completed with the move of the next button
+     * which is pressed.
+     *
+     * @param   b   board to select a move for
+     * @return  a future of the selected move
+     */
+    public synchronized CompletableFuture<Integer> requestMove(Board b)
+    {
+        this.myMove = Board.INVALID_MOVE;
+        this.pending = new CompletableFuture<Integer>();
+
+        return this.pending;
     }
 
     /**
@@ -71,9 +88,14 @@ class MousePlayer implements Player, ActionListener
             this.myMove = 8;
         }
 
-        // notify to resume getMove()
+        // complete the requested move, if any
+        CompletableFuture<Integer> move;
         synchronized(this) {
-            this.notify();
+            move = this.pending;
+            this.pending = null;
+        }
+        if (move != null) {
+            move.complete(this.myMove);
         }
     }
 }
\ No newline at end of file
@@ -18,7 +18,5 @@ public class TicTacToeApplet extends JApplet
         this.panel = new TicTacToePanel();
 
         this.add(this.panel);
-
-        new Thread(this.panel).start();
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package tictactoe.applet;
 import tictactoe.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.function.BiConsumer;
 import javax.swing.*;
 
 /**
@@ -13,7 +14,7 @@ import javax.swing.*;
  * @author Todd Taomae
  */
 @SuppressWarnings("serial")
-public class TicTacToePanel extends JPanel implements ActionListener, Runnable
+public class TicTacToePanel extends JPanel implements ActionListener
 {
     private BoardPanel board;
     private JLabel status;
@@ -31,7 +32,7 @@ public class TicTacToePanel extends JPanel implements ActionListener, Runnable
         this.setLayout(new BorderLayout(0, 10));
         this.setPreferredSize(new Dimension(150, 250));
 
-        this.board = this.board = new BoardPanel(new MousePlayer(), new AlphaBetaPlayer(10));
+        this.board = this.board = new BoardPanel(new MousePlayer(), new PonderingPlayer(new AlphaBetaPlayer(10)));
 
         this.status = new JLabel(" ");
         this.newGameButton = new JButton("New game");
@@ -64,7 +65,8 @@ public class TicTacToePanel extends JPanel implements ActionListener, Runnable
 
     /**
      * When the newGameButton is clicked, disable the button then set the player types
-     * based on which {@code JRadioButton} is selected.
+     * based on which {@code JRadioButton} is selected. The winner is shown
+     * when the game is over.
      */
     public void actionPerformed(ActionEvent ae)
     {
@@ -73,54 +75,51 @@ public class TicTacToePanel extends JPanel implements ActionListener, Runnable
 
             // set player types
             if (this.onePlayerButtonA.isSelected()) {
-                this.board.newPlayers(new MousePlayer(), new AlphaBetaPlayer(10));
+                this.board.newPlayers(new MousePlayer(), new PonderingPlayer(new AlphaBetaPlayer(10)));
 
             } else if (this.onePlayerButtonB.isSelected()) {
-                this.board.newPlayers(new AlphaBetaPlayer(10), new MousePlayer());
+                this.board.newPlayers(new PonderingPlayer(new AlphaBetaPlayer(10)), new MousePlayer());
 
             } else if (this.twoPlayerButton.isSelected()) {
                 this.board.newPlayers(new MousePlayer(), new MousePlayer());
             }
 
-            new Thread(this.board).start();
+            this.status.setText(" ");
+            this.board.play().whenComplete(new BiConsumer<Mark, Throwable>() {
+                public void accept(final Mark winner, Throwable failure) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            showWinner(winner);
+                        }
+                    });
+                }
+            });
         }
     }
 
     /**
-     * Updates the status message at the start and end of each game.
+     * Updates the status message at the end of a game and enables the
+     * newGameButton. Must be called on the event dispatch thread.
+     *
+     * @param   winner  winner of the game, or {@code null} if it failed
      */
-    public void run()
+    private void showWinner(Mark winner)
     {
-        while (true) {
-            try {
-                // wait until boardPanel notifies for game over or game start
-                synchronized(this.board) {
-                    this.board.wait();
-
-                    this.newGameButton.setEnabled(true);
-
-                    switch (this.board.getWinner()) {
-                        case X:
-                            this.status.setText("X wins!");
-                            break;
-                        case O:
-                            this.status.setText("O wins!");
-                            break;
-                        case DRAW:
-                            this.status.setText("Draw!");
-                            break;
-                        case NONE:
-                            this.status.setText(" ");
-                            this.newGameButton.setEnabled(false);
-                            break;
-                    }
-                }
-
-
-
-            } catch (InterruptedException ie) {
-                // do nothing
-            }
+        this.newGameButton.setEnabled(true);
+
+        switch (winner == null ? Mark.NONE : winner) {
+            case X:
+                this.status.setText("X wins!");
+                break;
+            case O:
+                this.status.setText("O wins!");
+                break;
+            case DRAW:
+                this.status.setText("Draw!");
+                break;
+            case NONE:
+                this.status.setText(" ");
+                break;
         }
     }
 
@@ -144,7 +143,5 @@ public class TicTacToePanel extends JPanel implements ActionListener, Runnable
 
         frame.pack();
         frame.setVisible(true);
-
-        new Thread(p).start();
     }
 }
\ No newline at end of file
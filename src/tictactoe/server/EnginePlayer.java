@@ -0,0 +1,54 @@
+package tictactoe.server;
+import tictactoe.*;
+
+import java.awt.event.*;
+
+/**
+ * The computer player of a server. Each worker thread searches with its own
+ * {@code AlphaBetaPlayer}, since a player can only search one board at a time,
+ * while the transposition table, evaluator and move cache are shared by all
+ * of them. A pondering player belongs to a single game instead.
+ *
+ * @author Todd Taomae
+ */
+class EnginePlayer implements Player
+{
+    private ThreadLocal<AlphaBetaPlayer> engines;
+    private PonderingPlayer ponderer;
+    private GameServer server;
+
+    EnginePlayer(final GameServer server)
+    {
+        this.server = server;
+        this.engines = new ThreadLocal<AlphaBetaPlayer>() {
+            protected AlphaBetaPlayer initialValue() {
+                return server.newSearchPlayer();
+            }
+        };
+    }
+
+    EnginePlayer(PonderingPlayer ponderer, GameServer server)
+    {
+        this.ponderer = ponderer;
+        this.server = server;
+    }
+
+    public int getMove(Board b)
+    {
+        int move = this.ponderer != null ? this.ponderer.getMove(b) : this.engines.get().getMove(b);
+        this.server.countMove();
+        return move;
+    }
+
+    /**
+     * Stops the background search of a pondering player, once its game is over.
+     */
+    void stopPondering()
+    {
+        if (this.ponderer != null) {
+            this.ponderer.stopPondering();
+        }
+    }
+
+    public void actionPerformed(ActionEvent ae) { /* do nothing */ }
+}
@@ -0,0 +1,461 @@
+package tictactoe.server;
+import tictactoe.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A server which hosts games of TicTacToe between clients connected over TCP
+ * and a computer player.
+ * <p>
+ * All connections are handled by a single thread with a {@code Selector}.
+ * Each game is played by a {@link Driver} with {@link Driver#playAsync(Executor)},
+ * so no thread waits for a client's move; the computer's moves are searched
+ * on a fixed pool of worker threads. Each worker has its own
+ * {@link AlphaBetaPlayer}, and all of them share one {@link TranspositionTable},
+ * one {@link Evaluator} and one {@link MoveCache}. Each search stops at the
+ * search time limit, so that a deep search of a large board does not hold a
+ * worker for long.
+ * If pondering is enabled, each game instead has its own
+ * {@link PonderingPlayer}, which searches the client's likely replies on a
+ * separate pool of threads while waiting for the client's move.
+ * <p>
+ * The protocol is line based. Commands from the client:
+ * <ul>
+ * <li>{@code NEW [X|O] [rows cols k]} - starts a game, with the client playing
+ *     X on a 3x3 board unless specified otherwise. The board may have at
+ *     most {@value #MAX_SPACES} spaces</li>
+ * <li>{@code MOVE n} - plays the client's move at position {@code n}</li>
+ * <li>{@code STATS} - requests the statistics of the server</li>
+ * <li>{@code QUIT} - closes the connection</li>
+ * </ul>
+ * Replies from the server:
+ * <ul>
+ * <li>{@code GAME side rows cols k} - a game has started</li>
+ * <li>{@code TURN cells} - it is the client's turn; {@code cells} has one
+ *     character for each space, {@code X}, {@code O} or {@code _}</li>
+ * <li>{@code END winner cells} - the game is over; the winner is {@code X},
+ *     {@code O} or {@code DRAW}</li>
+ * <li>{@code END TIMEOUT} - the client did not move in time and lost</li>
+ * <li>{@code STATS sessions games moves movesPerSecond}</li>
+ * <li>{@code ERR message} - the command was not valid</li>
+ * </ul>
+ *
+ * @author Todd Taomae
+ */
+public class GameServer implements Runnable
+{
+    /** Longest line accepted from a client */
+    static final int MAX_LINE = 256;
+    /** Largest number of spaces of a board requested by a client */
+    static final int MAX_SPACES = 64;
+    /** Seconds between printed statistics */
+    private static final int REPORT_INTERVAL = 5;
+    /** Longest time the computer player searches for a move, in milliseconds */
+    static final long MAX_SEARCH_TIME = 1000;
+
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private ExecutorService workers;
+    private ScheduledExecutorService timer;
+    private EnginePlayer engine;
+    private int depth;
+    private TranspositionTable table;
+    private Evaluator evaluator;
+    private MoveCache cache;
+    private int threads;
+    /** Threads of the background searches, or {@code null} if pondering is disabled */
+    private ExecutorService ponderers;
+    private long moveTimeout;
+    private long searchTime;
+    private volatile boolean running;
+
+    /** Sessions which have output waiting for the channel to become writable */
+    private Queue<Session> pendingWrites;
+    private ByteBuffer readBuffer;
+
+    private AtomicInteger sessions;
+    private LongAdder games;
+    private LongAdder moves;
+    private long startTime;
+
+    /**
+     * Constructs a new server listening on the specified port.
+     *
+     * @param   port        port to listen on, or {@code 0} for any free port
+     * @param   depth       search depth of the computer player
+     * @param   moveTimeout time each client has for a move, in milliseconds,
+     *                      which also bounds the time the computer player
+     *                      searches for a move
+     * @param   threads     number of threads to search with
+     * @throws  IOException if the port cannot be opened.
+     */
+    public GameServer(int port, int depth, long moveTimeout, int threads) throws IOException
+    {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+
+        this.workers = Executors.newFixedThreadPool(threads, daemonThreads("server-worker"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("server-timer"));
+        this.depth = depth;
+        this.table = new TranspositionTable(64);
+        this.evaluator = new LinePotentialEvaluator();
+        this.cache = new MoveCache(1 << 16);
+        this.threads = threads;
+        this.engine = new EnginePlayer(this);
+        this.moveTimeout = moveTimeout;
+        this.searchTime = Math.max(Math.min(moveTimeout, MAX_SEARCH_TIME), 1);
+
+        this.pendingWrites = new ConcurrentLinkedQueue<Session>();
+        this.readBuffer = ByteBuffer.allocateDirect(4096);
+
+        this.sessions = new AtomicInteger();
+        this.games = new LongAdder();
+        this.moves = new LongAdder();
+    }
+
+    /**
+     * Sets whether or not the computer player searches during the client's
+     * turn. Only affects games started afterwards.
+     *
+     * @param   pondering   whether or not to search during the client's turn
+     */
+    public synchronized void setPondering(boolean pondering)
+    {
+        if (pondering && this.ponderers == null) {
+            this.ponderers = Executors.newFixedThreadPool(this.threads, daemonThreads("server-ponder"));
+        } else if (!pondering && this.ponderers != null) {
+            this.ponderers.shutdown();
+            this.ponderers = null;
+        }
+    }
+
+    /**
+     * Sets the longest time the computer player searches for a move. By
+     * default, this is the move timeout of the clients, but at most
+     * {@value #MAX_SEARCH_TIME} milliseconds. Must be called before the
+     * server is started.
+     *
+     * @param   millis  search time limit in milliseconds, or {@code 0} for no limit
+     */
+    public void setSearchTime(long millis)
+    {
+        this.searchTime = Math.max(millis, 0);
+    }
+
+    /**
+     * Returns the port this server is listening on.
+     *
+     * @return  the port this server is listening on
+     */
+    public int getPort()
+    {
+        return this.serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return  the number of connected clients
+     */
+    public int getSessionCount()
+    {
+        return this.sessions.get();
+    }
+
+    /**
+     * Returns the number of games which have been finished.
+     *
+     * @return  the number of finished games
+     */
+    public long getGameCount()
+    {
+        return this.games.sum();
+    }
+
+    /**
+     * Returns the number of moves played by clients and by the computer.
+     *
+     * @return  the number of moves played
+     */
+    public long getMoveCount()
+    {
+        return this.moves.sum();
+    }
+
+    /**
+     * Returns the average number of moves played per second since the server started.
+     *
+     * @return  the number of moves per second
+     */
+    public double getMovesPerSecond()
+    {
+        long elapsed = System.nanoTime() - this.startTime;
+        return elapsed <= 0 ? 0.0 : this.getMoveCount() * 1e9 / elapsed;
+    }
+
+    /**
+     * Accepts connections and handles the commands of clients until
+     * {@link #stop()} is called.
+     */
+    public void run()
+    {
+        this.running = true;
+        this.startTime = System.nanoTime();
+
+        try {
+            while (this.running) {
+                this.selector.select();
+
+                Session s;
+                while ((s = this.pendingWrites.poll()) != null) {
+                    s.enableWrites();
+                }
+
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        this.accept();
+                    } else {
+                        Session session = (Session)key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                this.read(session);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                session.flush();
+                            }
+                        } catch (RuntimeException e) {
+                            // a failure in one session must not stop the others
+                            System.err.println("session failed: " + e);
+                            this.close(session);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("server stopped: " + e);
+        } finally {
+            this.shutdown();
+        }
+    }
+
+    /**
+     * Stops the server. May be called from any thread.
+     */
+    public void stop()
+    {
+        this.running = false;
+        this.selector.wakeup();
+    }
+
+    /**
+     * Closes every connection and stops the threads of this server.
+     */
+    private void shutdown()
+    {
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.attachment() instanceof Session) {
+                this.close((Session)key.attachment());
+            }
+        }
+        try {
+            this.serverChannel.close();
+            this.selector.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+        this.workers.shutdownNow();
+        this.timer.shutdownNow();
+        synchronized (this) {
+            if (this.ponderers != null) {
+                this.ponderers.shutdownNow();
+            }
+        }
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel channel;
+        while ((channel = this.serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+            key.attach(new Session(this, channel, key));
+            this.sessions.incrementAndGet();
+        }
+    }
+
+    private void read(Session session)
+    {
+        this.readBuffer.clear();
+        int n;
+        try {
+            n = session.getChannel().read(this.readBuffer);
+        } catch (IOException e) {
+            n = -1;
+        }
+
+        if (n < 0) {
+            this.close(session);
+            return;
+        }
+        this.readBuffer.flip();
+        session.received(this.readBuffer);
+    }
+
+    /**
+     * Closes the connection of the specified session.
+     *
+     * @param   session     session to close
+     */
+    void close(Session session)
+    {
+        if (session.close()) {
+            this.sessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Requests that the selector thread waits for the channel of the
+     * specified session to become writable.
+     *
+     * @param   session     session with output waiting
+     */
+    void requestWrite(Session session)
+    {
+        this.pendingWrites.add(session);
+        this.selector.wakeup();
+    }
+
+    Executor getWorkers()
+    {
+        return this.workers;
+    }
+
+    ScheduledExecutorService getTimer()
+    {
+        return this.timer;
+    }
+
+    /**
+     * Returns the computer player for a new game, which is shared by every
+     * game unless pondering is enabled.
+     *
+     * @return  the computer player for a new game
+     */
+    synchronized EnginePlayer newEngine()
+    {
+        if (this.ponderers == null) {
+            return this.engine;
+        }
+
+        return new EnginePlayer(new PonderingPlayer(this.newSearchPlayer(), this.ponderers), this);
+    }
+
+    /**
+     * Returns a new search player which shares the transposition table,
+     * evaluator and move cache of this server and stops at its search time
+     * limit.
+     *
+     * @return  a new search player
+     */
+    AlphaBetaPlayer newSearchPlayer()
+    {
+        AlphaBetaPlayer player = new AlphaBetaPlayer(this.depth, this.table);
+        player.setEvaluator(this.evaluator);
+        player.setMoveCache(this.cache);
+        player.setTimeLimit(this.searchTime);
+        return player;
+    }
+
+    long getMoveTimeout()
+    {
+        return this.moveTimeout;
+    }
+
+    void countMove()
+    {
+        this.moves.increment();
+    }
+
+    void countGame()
+    {
+        this.games.increment();
+    }
+
+    /**
+     * Returns the statistics line sent in reply to {@code STATS}.
+     *
+     * @return  the statistics of the server
+     */
+    String statistics()
+    {
+        return String.format("STATS %d %d %d %.1f", this.getSessionCount(), this.getGameCount(),
+                             this.getMoveCount(), this.getMovesPerSecond());
+    }
+
+    /**
+     * Returns a factory of daemon threads with the specified name.
+     */
+    private static ThreadFactory daemonThreads(final String name)
+    {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + this.count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Starts a server and prints its statistics every few seconds.
+     * <p>
+     * Arguments: port, search depth, move timeout in milliseconds, number
+     * of worker threads and {@code ponder} to enable pondering. All arguments
+     * are optional.
+     *
+     * @param   args    command line arguments
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+        long timeout = args.length > 2 ? Long.parseLong(args[2]) : 30000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                                      : Runtime.getRuntime().availableProcessors();
+
+        final GameServer server = new GameServer(port, depth, timeout, threads);
+        server.setPondering(args.length > 4 && args[4].equals("ponder"));
+        System.out.println("listening on port " + server.getPort());
+
+        server.getTimer().scheduleAtFixedRate(new Runnable() {
+            private long lastMoves;
+            public void run() {
+                long moves = server.getMoveCount();
+                System.out.printf("sessions=%d games=%d moves=%d moves/s=%.0f%n",
+                                  server.getSessionCount(), server.getGameCount(), moves,
+                                  (moves - this.lastMoves) / (double)REPORT_INTERVAL);
+                this.lastMoves = moves;
+            }
+        }, REPORT_INTERVAL, REPORT_INTERVAL, TimeUnit.SECONDS);
+
+        server.run();
+    }
+}
@@ -0,0 +1,251 @@
+package tictactoe.server;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generates load for a {@link GameServer} by playing many games at once over
+ * separate connections, all from a single thread. Each connection plays random
+ * moves and starts a new game as soon as the last one ends, until the time is
+ * up. Prints the number of games and moves and the round trip time of each
+ * move, from sending it to receiving the next turn or the end of the game.
+ *
+ * @author Todd Taomae
+ */
+public class LoadClient
+{
+    private Selector selector;
+    private Random rng;
+    private long deadline;
+
+    // results
+    private long games;
+    private long moves;
+    private long timeouts;
+    private long errors;
+    private long totalLatency;
+    private long maxLatency;
+    private int open;
+
+    /**
+     * A connection to the server.
+     */
+    private static class Connection
+    {
+        SocketChannel channel;
+        StringBuilder line = new StringBuilder();
+        ByteBuffer output;
+        /** Time the last move was sent, or {@code 0} if there is none waiting */
+        long sent;
+    }
+
+    /**
+     * Constructs a new client which plays until the specified time.
+     *
+     * @param   seconds     number of seconds to play for
+     * @throws  IOException if a selector cannot be opened.
+     */
+    public LoadClient(int seconds) throws IOException
+    {
+        this.selector = Selector.open();
+        this.rng = new Random();
+        this.deadline = System.nanoTime() + seconds * 1000000000L;
+    }
+
+    /**
+     * Opens the specified number of connections to the specified server and
+     * plays games on all of them until the time is up.
+     *
+     * @param   address         address of the server
+     * @param   connections     number of connections to open
+     * @throws  IOException if the selector fails.
+     */
+    public void run(InetSocketAddress address, int connections) throws IOException
+    {
+        for (int i = 0; i < connections; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection c = new Connection();
+            c.channel = channel;
+            if (channel.connect(address)) {
+                channel.register(this.selector, SelectionKey.OP_READ, c);
+                this.send(c, "NEW");
+            } else {
+                channel.register(this.selector, SelectionKey.OP_CONNECT, c);
+            }
+            this.open++;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        while (this.open > 0) {
+            this.selector.select(1000);
+
+            Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Connection c = (Connection)key.attachment();
+
+                try {
+                    if (key.isConnectable()) {
+                        c.channel.finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                        this.send(c, "NEW");
+                    } else if (key.isWritable()) {
+                        c.channel.write(c.output);
+                        if (!c.output.hasRemaining()) {
+                            c.output = null;
+                            key.interestOps(SelectionKey.OP_READ);
+                        }
+                    } else if (key.isReadable()) {
+                        buffer.clear();
+                        if (c.channel.read(buffer) < 0) {
+                            this.close(c);
+                            continue;
+                        }
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            char ch = (char)(buffer.get() & 0xFF);
+                            if (ch == '\n') {
+                                this.reply(c, c.line.toString());
+                                c.line.setLength(0);
+                            } else {
+                                c.line.append(ch);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    this.errors++;
+                    this.close(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles one reply from the server.
+     */
+    private void reply(Connection c, String reply) throws IOException
+    {
+        if (c.sent != 0 && (reply.startsWith("TURN") || reply.startsWith("END"))) {
+            long latency = System.nanoTime() - c.sent;
+            this.totalLatency += latency;
+            this.maxLatency = Math.max(this.maxLatency, latency);
+            this.moves++;
+            c.sent = 0;
+        }
+
+        if (reply.startsWith("TURN ")) {
+            // select a random empty space
+            String cells = reply.substring(5);
+            int empty = 0;
+            for (int i = 0; i < cells.length(); i++) {
+                if (cells.charAt(i) == '_') {
+                    empty++;
+                }
+            }
+            int n = this.rng.nextInt(empty);
+            for (int i = 0; i < cells.length(); i++) {
+                if (cells.charAt(i) == '_' && n-- == 0) {
+                    c.sent = System.nanoTime();
+                    this.send(c, "MOVE " + i);
+                    break;
+                }
+            }
+        } else if (reply.startsWith("END")) {
+            this.games++;
+            if (reply.equals("END TIMEOUT")) {
+                this.timeouts++;
+            }
+            if (System.nanoTime() < this.deadline) {
+                this.send(c, this.rng.nextBoolean() ? "NEW X" : "NEW O");
+            } else {
+                this.send(c, "QUIT");
+                this.close(c);
+            }
+        } else if (reply.startsWith("ERR")) {
+            this.errors++;
+        }
+    }
+
+    private void send(Connection c, String text) throws IOException
+    {
+        ByteBuffer bytes = ByteBuffer.wrap((text + "\n").getBytes(StandardCharsets.US_ASCII));
+        if (c.output != null) {
+            // append to the output which has not been written yet
+            ByteBuffer joined = ByteBuffer.allocate(c.output.remaining() + bytes.remaining());
+            joined.put(c.output).put(bytes).flip();
+            c.output = joined;
+            return;
+        }
+
+        c.channel.write(bytes);
+        if (bytes.hasRemaining()) {
+            c.output = bytes;
+            c.channel.keyFor(this.selector).interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void close(Connection c)
+    {
+        if (c.channel.isOpen()) {
+            this.open--;
+            try {
+                c.channel.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    public String toString()
+    {
+        return String.format("%d games, %d moves, %d timeouts, %d errors; "
+                             + "move round trip mean %.2f ms, max %.2f ms",
+                             this.games, this.moves, this.timeouts, this.errors,
+                             this.moves == 0 ? 0.0 : this.totalLatency / 1e6 / this.moves,
+                             this.maxLatency / 1e6);
+    }
+
+    /**
+     * Plays games against a server and prints the results.
+     * <p>
+     * Arguments: port, number of connections and number of seconds. All
+     * arguments are optional. If the port is {@code 0}, a server is started
+     * in the same process.
+     *
+     * @param   args    command line arguments
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        GameServer server = null;
+        if (port == 0) {
+            server = new GameServer(0, 9, 30000, Runtime.getRuntime().availableProcessors());
+            port = server.getPort();
+            Thread t = new Thread(server, "server");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        long start = System.nanoTime();
+        LoadClient client = new LoadClient(seconds);
+        client.run(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), connections);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(client);
+        System.out.printf("%.1f s, %.0f moves/s%n", elapsed, client.moves / elapsed);
+        if (server != null) {
+            System.out.println(server.statistics());
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package tictactoe.server;
+import tictactoe.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * The connection of one client to a {@link GameServer}, which is also the
+ * client's player in its current game.
+ * <p>
+ * Commands are read on the selector thread of the server. Moves are requested
+ * and games end on the worker threads, so the state of the game is guarded by
+ * this object. Output is written directly to the channel when possible, and
+ * otherwise queued until the channel is writable.
+ *
+ * @author Todd Taomae
+ */
+class Session implements AsyncPlayer
+{
+    private GameServer server;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private StringBuilder line;
+
+    /** Output which could not be written yet, guarded by itself */
+    private Deque<ByteBuffer> output;
+    private boolean closed;
+
+    // state of the current game, guarded by this
+    private Driver driver;
+    private EnginePlayer engine;
+    private Mark side;
+    private Board board;
+    private CompletableFuture<Integer> pending;
+    private ScheduledFuture<?> timeout;
+
+    Session(GameServer server, SocketChannel channel, SelectionKey key)
+    {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+        this.line = new StringBuilder();
+        this.output = new ArrayDeque<ByteBuffer>();
+    }
+
+    SocketChannel getChannel()
+    {
+        return this.channel;
+    }
+
+    /**
+     * Handles the specified bytes read from the channel. Called on the
+     * selector thread.
+     *
+     * @param   bytes   bytes read from the channel
+     */
+    void received(ByteBuffer bytes)
+    {
+        while (bytes.hasRemaining() && !this.isClosed()) {
+            char c = (char)(bytes.get() & 0xFF);
+            if (c == '\n') {
+                this.command(this.line.toString().trim());
+                this.line.setLength(0);
+            } else if (this.line.length() >= GameServer.MAX_LINE) {
+                this.send("ERR line too long");
+                this.server.close(this);
+                return;
+            } else {
+                this.line.append(c);
+            }
+        }
+    }
+
+    /**
+     * Handles one command from the client.
+     *
+     * @param   command     line sent by the client
+     */
+    private void command(String command)
+    {
+        String[] args = command.split("\\s+");
+
+        if (args[0].equals("MOVE")) {
+            this.move(args);
+        } else if (args[0].equals("NEW")) {
+            this.newGame(args);
+        } else if (args[0].equals("STATS")) {
+            this.send(this.server.statistics());
+        } else if (args[0].equals("QUIT")) {
+            this.server.close(this);
+        } else if (!command.isEmpty()) {
+            this.send("ERR unknown command");
+        }
+    }
+
+    private void newGame(String[] args)
+    {
+        Mark side = Mark.X;
+        int rows = 3;
+        int cols = 3;
+        int k = 3;
+        Driver driver;
+
+        try {
+            int i = 1;
+            if (i < args.length && (args[i].equals("X") || args[i].equals("O"))) {
+                side = Mark.valueOf(args[i++]);
+            }
+            if (i < args.length) {
+                if (args.length - i != 3) {
+                    this.send("ERR usage: NEW [X|O] [rows cols k]");
+                    return;
+                }
+                rows = Integer.parseInt(args[i]);
+                cols = Integer.parseInt(args[i+1]);
+                k = Integer.parseInt(args[i+2]);
+            }
+        } catch (IllegalArgumentException e) {
+            this.send("ERR " + e.getMessage());
+            return;
+        }
+
+        // checked before anything is allocated for the board
+        if (rows < 1 || cols < 1 || (long)rows * cols > GameServer.MAX_SPACES) {
+            this.send("ERR board must have between 1 and " + GameServer.MAX_SPACES + " spaces");
+            return;
+        }
+
+        synchronized (this) {
+            if (this.driver != null) {
+                this.send("ERR game in progress");
+                return;
+            }
+
+            try {
+                driver = side == Mark.X ? new Driver(new SessionPlayer(this), null, rows, cols, k)
+                                        : new Driver(null, new SessionPlayer(this), rows, cols, k);
+            } catch (IllegalArgumentException e) {
+                this.send("ERR " + e.getMessage());
+                return;
+            }
+
+            // only created once the game is known to start
+            EnginePlayer engine = this.server.newEngine();
+            if (side == Mark.X) {
+                driver.setPlayerO(engine);
+            } else {
+                driver.setPlayerX(engine);
+            }
+            this.driver = driver;
+            this.engine = engine;
+            this.side = side;
+        }
+
+        this.send("GAME " + side + " " + rows + " " + cols + " " + k);
+        driver.playAsync(this.server.getWorkers()).whenComplete(new BiConsumer<Mark, Throwable>() {
+            public void accept(Mark winner, Throwable t) {
+                gameOver(winner, t);
+            }
+        });
+    }
+
+    private void move(String[] args)
+    {
+        int move;
+        try {
+            move = Integer.parseInt(args[1]);
+        } catch (RuntimeException e) {
+            this.send("ERR usage: MOVE n");
+            return;
+        }
+
+        CompletableFuture<Integer> f;
+        synchronized (this) {
+            if (this.pending == null) {
+                this.send("ERR not your turn");
+                return;
+            }
+            if (move < 0 || move >= this.board.getSize() || this.board.markAt(move) != Mark.NONE) {
+                this.send("ERR illegal move");
+                return;
+            }
+
+            f = this.pending;
+            this.pending = null;
+            this.timeout.cancel(false);
+        }
+
+        this.server.countMove();
+        f.complete(move);
+    }
+
+    /**
+     * Sends the board to the client and waits for its move, which must be made
+     * before the move timeout of the server.
+     *
+     * @param   b   the board to select a move for
+     * @return  a future of the client's move
+     */
+    public CompletableFuture<Integer> requestMove(Board b)
+    {
+        final CompletableFuture<Integer> f = new CompletableFuture<Integer>();
+
+        synchronized (this) {
+            if (this.closed) {
+                f.cancel(false);
+                return f;
+            }
+            this.board = b;
+            this.pending = f;
+            this.timeout = this.server.getTimer().schedule(new Runnable() {
+                public void run() {
+                    timedOut(f);
+                }
+            }, this.server.getMoveTimeout(), TimeUnit.MILLISECONDS);
+        }
+
+        this.send("TURN " + cells(b));
+        return f;
+    }
+
+    /**
+     * Fails the specified move request if it is still waiting for the client.
+     */
+    private void timedOut(CompletableFuture<Integer> f)
+    {
+        synchronized (this) {
+            if (this.pending != f) {
+                return;
+            }
+            this.pending = null;
+        }
+        f.completeExceptionally(new TimeoutException());
+    }
+
+    /**
+     * Reports the result of the current game to the client.
+     */
+    private void gameOver(Mark winner, Throwable t)
+    {
+        Driver driver;
+        EnginePlayer engine;
+        synchronized (this) {
+            driver = this.driver;
+            engine = this.engine;
+            this.driver = null;
+            this.engine = null;
+            this.board = null;
+        }
+        if (engine != null) {
+            engine.stopPondering();
+        }
+
+        if (t == null) {
+            this.server.countGame();
+            StringBuilder cells = new StringBuilder();
+            for (Mark m : driver.getState()) {
+                cells.append(cell(m));
+            }
+            this.send("END " + winner + " " + cells);
+        } else if (t instanceof TimeoutException || t.getCause() instanceof TimeoutException) {
+            this.server.countGame();
+            this.send("END TIMEOUT");
+        } else if (!this.isClosed()) {
+            this.send("END ERROR");
+        }
+    }
+
+    /**
+     * Sends the specified line to the client. May be called from any thread.
+     *
+     * @param   text    line to send, without the line terminator
+     */
+    void send(String text)
+    {
+        ByteBuffer bytes = ByteBuffer.wrap((text + "\n").getBytes(StandardCharsets.US_ASCII));
+
+        synchronized (this.output) {
+            if (this.closed) {
+                return;
+            }
+            if (this.output.isEmpty()) {
+                try {
+                    this.channel.write(bytes);
+                } catch (IOException e) {
+                    // the selector thread will see that the channel is closed
+                    return;
+                }
+                if (!bytes.hasRemaining()) {
+                    return;
+                }
+            }
+            this.output.add(bytes);
+        }
+        this.server.requestWrite(this);
+    }
+
+    /**
+     * Waits for the channel to become writable. Called on the selector thread.
+     */
+    void enableWrites()
+    {
+        if (this.key.isValid()) {
+            this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Writes as much of the queued output as possible. Called on the
+     * selector thread when the channel is writable.
+     */
+    void flush()
+    {
+        synchronized (this.output) {
+            try {
+                while (!this.output.isEmpty()) {
+                    ByteBuffer bytes = this.output.peek();
+                    this.channel.write(bytes);
+                    if (bytes.hasRemaining()) {
+                        return;
+                    }
+                    this.output.poll();
+                }
+                this.key.interestOps(SelectionKey.OP_READ);
+                return;
+            } catch (IOException e) {
+                // close below, without holding the lock
+            }
+        }
+        this.server.close(this);
+    }
+
+    /**
+     * Closes the connection and ends the current game.
+     *
+     * @return  {@code true} if the connection was open
+     */
+    boolean close()
+    {
+        synchronized (this.output) {
+            if (this.closed) {
+                return false;
+            }
+            this.closed = true;
+            this.output.clear();
+        }
+
+        CompletableFuture<Integer> f;
+        synchronized (this) {
+            f = this.pending;
+            this.pending = null;
+            if (this.timeout != null) {
+                this.timeout.cancel(false);
+            }
+        }
+        if (f != null) {
+            f.cancel(false);
+        }
+
+        this.key.cancel();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+
+        return true;
+    }
+
+    private boolean isClosed()
+    {
+        synchronized (this.output) {
+            return this.closed;
+        }
+    }
+
+    /**
+     * Returns the cells of the specified board, one character per space.
+     */
+    private static String cells(Board b)
+    {
+        StringBuilder result = new StringBuilder(b.getSize());
+        for (int i = 0; i < b.getSize(); i++) {
+            result.append(cell(b.markAt(i)));
+        }
+
+        return result.toString();
+    }
+
+    private static char cell(Mark m)
+    {
+        return m == Mark.X ? 'X' : m == Mark.O ? 'O' : '_';
+    }
+}
+
+/**
+ * The {@code Player} of a {@link Session} in a {@code Driver}. A {@code Driver}
+ * only accepts {@code Player}s, and requests moves through {@code AsyncPlayer}
+ * when the player also implements it, so the blocking method is never used.
+ *
+ * @author Todd Taomae
+ */
+class SessionPlayer implements Player, AsyncPlayer
+{
+    private Session session;
+
+    SessionPlayer(Session session)
+    {
+        this.session = session;
+    }
+
+    public CompletableFuture<Integer> requestMove(Board b)
+    {
+        return this.session.requestMove(b);
+    }
+
+    public int getMove(Board b)
+    {
+        try {
+            return this.requestMove(b).get();
+        } catch (Exception e) {
+            return Board.INVALID_MOVE;
+        }
+    }
+
+    public void actionPerformed(java.awt.event.ActionEvent ae) { /* do nothing */ }
+}
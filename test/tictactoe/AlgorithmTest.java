@@ -0,0 +1,63 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks that every {@link AlphaBetaPlayer.Algorithm}, serial and parallel,
+ * gives the same value to every move as the plain alpha-beta search.
+ *
+ * @author Todd Taomae
+ */
+public class AlgorithmTest
+{
+    /** Shape and moves of each position: a 3x3 midgame, a won and a drawn 4x4, and a 5x5 */
+    private static final int[][][] POSITIONS = {
+        { {3, 3, 3}, {4, 0, 8, 2} },
+        { {4, 4, 3}, {5, 6} },
+        { {4, 4, 4}, {5, 10, 6} },
+        { {5, 5, 4}, {12, 6, 18} }
+    };
+    private static final int[] DEPTHS = { 4, 6, 8 };
+
+    @Test
+    public void algorithmsAgreeOnMoveValues() throws IllegalMoveException
+    {
+        for (int[][] position : POSITIONS) {
+            Board board = new Board(position[0][0], position[0][1], position[0][2]);
+            for (int move : position[1]) {
+                board.play(move);
+            }
+
+            for (int depth : DEPTHS) {
+                SearchResult expected = search(board, depth, AlphaBetaPlayer.Algorithm.ALPHA_BETA, 1);
+                for (AlphaBetaPlayer.Algorithm algorithm : AlphaBetaPlayer.Algorithm.values()) {
+                    for (int parallelism = 1; parallelism <= 2; parallelism++) {
+                        SearchResult result = search(board, depth, algorithm, parallelism);
+                        for (int move = 0; move < board.getSize(); move++) {
+                            assertEquals(expected.getValue(move), result.getValue(move),
+                                         algorithm + " x" + parallelism + " at depth " + depth
+                                         + ", move " + move + " of\n" + board);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches the specified board with a new player.
+     */
+    private static SearchResult search(Board board, int depth, AlphaBetaPlayer.Algorithm algorithm,
+                                       int parallelism)
+    {
+        AlphaBetaPlayer player = new AlphaBetaPlayer(depth, 16);
+        player.setRandom(new Random(0));
+        player.setAlgorithm(algorithm);
+        player.setParallelism(parallelism);
+        return player.analyze(board);
+    }
+}
@@ -0,0 +1,169 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks that {@link AsyncGameListener} delivers events in order, coalesces
+ * only consecutive moves of the same game, and keeps delivering after the
+ * listener throws an exception.
+ *
+ * @author Todd Taomae
+ */
+public class AsyncGameListenerTest
+{
+    /**
+     * An executor which only runs its tasks when told to, like a listener
+     * which has fallen behind.
+     */
+    private static final class QueueExecutor implements Executor
+    {
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        public void execute(Runnable task)
+        {
+            this.tasks.add(task);
+        }
+
+        void runAll()
+        {
+            Runnable task;
+            while ((task = this.tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * A listener which records the events delivered to it.
+     */
+    private static class RecordingListener implements GameListener
+    {
+        final List<GameEvent> events = new ArrayList<GameEvent>();
+
+        public void gameStarted(GameEvent e)
+        {
+            this.events.add(e);
+        }
+
+        public void movePlayed(GameEvent e)
+        {
+            this.events.add(e);
+        }
+
+        public void gameOver(GameEvent e)
+        {
+            this.events.add(e);
+        }
+    }
+
+    @Test
+    public void coalescesMovesOfSlowListener()
+    {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener recorder = new RecordingListener();
+        AsyncGameListener listener = new AsyncGameListener(recorder, executor);
+
+        Driver driver = new Driver(new RandomPlayer(), new RandomPlayer());
+        driver.addGameListener(listener);
+        driver.playGame(false);
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+
+        // the start, the last move, whose board has every move, and the end
+        assertEquals(3, recorder.events.size());
+        assertEquals(GameEvent.Type.GAME_STARTED, recorder.events.get(0).getType());
+        GameEvent move = recorder.events.get(1);
+        GameEvent over = recorder.events.get(2);
+        assertEquals(GameEvent.Type.MOVE_PLAYED, move.getType());
+        assertEquals(GameEvent.Type.GAME_OVER, over.getType());
+        assertEquals(over.getBoard(), move.getBoard());
+        assertEquals(move.getTurn() - 1, listener.getCoalesced());
+    }
+
+    @Test
+    public void coalescesOnlyConsecutiveMovesOfOneGame()
+    {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener recorder = new RecordingListener();
+        AsyncGameListener listener = new AsyncGameListener(recorder, executor);
+        Driver first = new Driver(new RandomPlayer(), new RandomPlayer());
+        Driver second = new Driver(new RandomPlayer(), new RandomPlayer());
+
+        List<GameEvent> events = new ArrayList<GameEvent>();
+        events.add(move(first, 4));
+        events.add(move(second, 4));
+        events.add(move(first, 4, 0));
+        events.add(new GameEvent(first, GameEvent.Type.GAME_STARTED, new Board()));
+        events.add(move(first, 8));
+        for (GameEvent e : events) {
+            if (e.getType() == GameEvent.Type.GAME_STARTED) {
+                listener.gameStarted(e);
+            } else {
+                listener.movePlayed(e);
+            }
+        }
+        executor.runAll();
+        assertEquals(events, recorder.events);
+        assertEquals(0, listener.getCoalesced());
+
+        // once delivered, a move is never replaced
+        listener.movePlayed(move(first, 8, 0));
+        executor.runAll();
+        GameEvent last = move(first, 8, 0, 2);
+        listener.movePlayed(move(first, 8, 0, 1));
+        listener.movePlayed(last);
+        executor.runAll();
+        assertEquals(7, recorder.events.size());
+        assertSame(last, recorder.events.get(6));
+        assertEquals(1, listener.getCoalesced());
+    }
+
+    @Test
+    public void deliversRemainingEventsAfterException()
+    {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener recorder = new RecordingListener() {
+            public void gameStarted(GameEvent e)
+            {
+                super.gameStarted(e);
+                throw new IllegalStateException("listener failed");
+            }
+        };
+        AsyncGameListener listener = new AsyncGameListener(recorder, executor);
+        Driver driver = new Driver(new RandomPlayer(), new RandomPlayer());
+
+        listener.gameStarted(new GameEvent(driver, GameEvent.Type.GAME_STARTED, new Board()));
+        listener.movePlayed(move(driver, 4));
+        try {
+            executor.tasks.remove().run();
+            fail("the exception of the listener was not thrown");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // another task delivers the move
+        assertEquals(1, recorder.events.size());
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(2, recorder.events.size());
+        assertEquals(GameEvent.Type.MOVE_PLAYED, recorder.events.get(1).getType());
+    }
+
+    /**
+     * Returns a move event of the specified driver on a 3x3 board with the
+     * specified moves.
+     */
+    private static GameEvent move(Driver driver, int... moves)
+    {
+        Board b = new Board();
+        for (int m : moves) {
+            b.makeMove(m);
+        }
+        return new GameEvent(driver, GameEvent.Type.MOVE_PLAYED, b);
+    }
+}
@@ -0,0 +1,130 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks that {@link Board} restores its hashes when moves are taken back and
+ * that symmetric positions have the same canonical form.
+ *
+ * @author Todd Taomae
+ */
+public class BoardTest
+{
+    /** Rows, columns and win length of each shape checked */
+    private static final int[][] SHAPES = { {3, 3, 3}, {4, 4, 4}, {3, 5, 3}, {9, 9, 5} };
+
+    @Test
+    public void undoRestoresHashes()
+    {
+        Random random = new Random(0);
+        for (int[] shape : SHAPES) {
+            for (int game = 0; game < 50; game++) {
+                Board board = new Board(shape[0], shape[1], shape[2]);
+                int[] moves = new int[board.getSize()];
+                long[][] hashes = new long[board.getSize() + 1][];
+                Board[] copies = new Board[board.getSize() + 1];
+
+                while (board.getTurn() < board.getSize() && board.getWinner() == Mark.NONE) {
+                    hashes[board.getTurn()] = hashes(board);
+                    copies[board.getTurn()] = (Board)board.clone();
+                    int numMoves = board.getLegalMoves(moves);
+                    board.makeMove(moves[random.nextInt(numMoves)]);
+                }
+
+                while (board.getTurn() > 0) {
+                    int move = board.getLastMove();
+                    assertEquals(move, board.undo());
+                    assertEquals(Mark.NONE, board.markAt(move));
+                    assertArrayEquals(hashes[board.getTurn()], hashes(board));
+                    assertEquals(copies[board.getTurn()], board);
+                    assertEquals(copies[board.getTurn()].getWinner(), board.getWinner());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void hashDependsOnlyOnMarks() throws IllegalMoveException
+    {
+        Board a = new Board();
+        a.play(0);
+        a.play(4);
+        a.play(8);
+
+        Board b = new Board();
+        b.play(8);
+        b.play(4);
+        b.play(0);
+
+        assertEquals(a, b);
+        assertEquals(a.getHash(), b.getHash());
+
+        b.undo();
+        b.play(2);
+        assertNotEquals(a.getHash(), b.getHash());
+    }
+
+    @Test
+    public void symmetricPositionsHaveSameCanonicalForm()
+    {
+        Random random = new Random(1);
+        for (int[] shape : SHAPES) {
+            for (int game = 0; game < 50; game++) {
+                Board board = new Board(shape[0], shape[1], shape[2]);
+                int[] moves = new int[board.getSize()];
+                int length = random.nextInt(board.getSize() / 2 + 1);
+                for (int i = 0; i < length && board.getWinner() == Mark.NONE; i++) {
+                    int numMoves = board.getLegalMoves(moves);
+                    board.makeMove(moves[random.nextInt(numMoves)]);
+                }
+
+                Board canonical = board.canonical();
+                assertEquals(board.getCanonicalHash(), canonical.getHash());
+                for (int t = 0; t < board.getSymmetryCount(); t++) {
+                    Board image = new Board(shape[0], shape[1], shape[2]);
+                    for (int i = 0; i < board.getTurn(); i++) {
+                        image.makeMove(board.transform(board.getMove(i), t));
+                    }
+                    assertEquals(board.getHash(t), image.getHash());
+                    assertEquals(board.getCanonicalHash(), image.getCanonicalHash());
+                    assertEquals(canonical, image.canonical());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void distinctMovesOfSymmetricPositions() throws IllegalMoveException
+    {
+        Board board = new Board();
+        int[] moves = new int[board.getSize()];
+        // corner, edge and center
+        assertEquals(3, board.getDistinctMoves(moves));
+        assertArrayEquals(new int[] {0, 1, 4}, Arrays.copyOf(moves, 3));
+
+        // symmetric about the main diagonal: {1, 3}, {2, 6}, {5, 7} and {8}
+        board.play(4);
+        board.play(0);
+        assertEquals(4, board.getDistinctMoves(moves));
+
+        // a rectangular board has no diagonal symmetries
+        Board wide = new Board(3, 4, 3);
+        assertEquals(4, wide.getSymmetryCount());
+        assertEquals(4, wide.getDistinctMoves(new int[wide.getSize()]));
+    }
+
+    private static long[] hashes(Board board)
+    {
+        long[] result = new long[board.getSymmetryCount()];
+        for (int t = 0; t < result.length; t++) {
+            result[t] = board.getHash(t);
+        }
+
+        return result;
+    }
+}
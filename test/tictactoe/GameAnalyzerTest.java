@@ -0,0 +1,74 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks the judgements of {@link GameAnalyzer} on games with known weak
+ * moves.
+ *
+ * @author Todd Taomae
+ */
+public class GameAnalyzerTest
+{
+    @Test
+    public void flagsMistake() throws Exception
+    {
+        // O loses 3x3 by answering the center with an edge
+        String[] lines = analyze(new GameAnalyzer(9), "4,1", 3, 3, 3);
+        assertEquals("?", judgement(lines[0]));
+        assertEquals("mistake", judgement(lines[1]));
+    }
+
+    @Test
+    public void flagsInaccuracy() throws Exception
+    {
+        // the center of 5x5 is in more lines than a corner
+        String[] lines = analyze(new GameAnalyzer(4), "12\n0", 5, 5, 4);
+        assertEquals("ok", judgement(lines[0]));
+        assertEquals("inaccuracy", judgement(lines[1]));
+
+        // a corner of 9x9 gives up far more than a corner of 5x5
+        lines = analyze(new GameAnalyzer(3), "40\n0", 9, 9, 5);
+        assertEquals("ok", judgement(lines[0]));
+        assertEquals("inaccuracy", judgement(lines[1]));
+    }
+
+    @Test
+    public void fixedThresholdReplacesDefault() throws Exception
+    {
+        GameAnalyzer analyzer = new GameAnalyzer(4);
+        // game, turn, move, value, best move, best value and judgement
+        String[] fields = analyze(analyzer, "0", 5, 5, 4)[0].split("\t");
+        int loss = Integer.parseInt(fields[5]) - Integer.parseInt(fields[3]);
+        assertTrue(loss > 0);
+
+        analyzer.setInaccuracyThreshold(loss + 1);
+        assertEquals("ok", judgement(analyze(analyzer, "0", 5, 5, 4)[0]));
+        analyzer.setInaccuracyThreshold(loss);
+        assertEquals("inaccuracy", judgement(analyze(analyzer, "0", 5, 5, 4)[0]));
+        analyzer.setInaccuracyThreshold(0);
+        assertEquals("inaccuracy", judgement(analyze(analyzer, "0", 5, 5, 4)[0]));
+    }
+
+    /**
+     * Analyzes the specified games on one thread and returns the annotation
+     * lines.
+     */
+    private static String[] analyze(GameAnalyzer analyzer, String games, int rows, int cols, int k)
+        throws IOException, InterruptedException
+    {
+        analyzer.setThreads(1);
+        StringWriter out = new StringWriter();
+        analyzer.analyze(new StringReader(games), rows, cols, k, out);
+        return out.toString().split("\n");
+    }
+
+    private static String judgement(String line)
+    {
+        return line.substring(line.lastIndexOf('\t') + 1);
+    }
+}
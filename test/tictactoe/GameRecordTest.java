@@ -0,0 +1,107 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks that games written by {@link GameRecordWriter} are read back by
+ * {@link GameRecordReader} with the same moves and winner.
+ *
+ * @author Todd Taomae
+ */
+public class GameRecordTest
+{
+    @Test
+    public void roundTrip() throws IOException
+    {
+        int[][] shapes = { {3, 3, 3}, {4, 5, 4}, {9, 9, 5} };
+        Random random = new Random(0);
+        for (int[] shape : shapes) {
+            List<Board> games = new ArrayList<Board>();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            GameRecordWriter writer = new GameRecordWriter(bytes, shape[0], shape[1], shape[2]);
+            for (int i = 0; i < 200; i++) {
+                // every fourth game is unfinished
+                Board b = randomGame(random, shape, i % 4 == 0);
+                games.add(b);
+                writer.write(b);
+            }
+            writer.close();
+            assertEquals(games.size(), writer.getCount());
+
+            GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(bytes.toByteArray()));
+            assertEquals(shape[0], reader.getRows());
+            assertEquals(shape[1], reader.getColumns());
+            assertEquals(shape[2], reader.getWinLength());
+            for (Board expected : games) {
+                assertTrue(reader.next());
+                assertEquals(expected.getTurn(), reader.getMoveCount());
+                for (int turn = 0; turn < expected.getTurn(); turn++) {
+                    assertEquals(expected.getMove(turn), reader.getMove(turn));
+                }
+                assertEquals(expected.getWinner(), reader.getWinner());
+                assertEquals(expected, reader.toBoard());
+            }
+            assertFalse(reader.next());
+            reader.close();
+        }
+    }
+
+    @Test
+    public void completeGameOn3x3TakesFourBytes() throws IOException, IllegalMoveException
+    {
+        // a drawn game, which fills the board
+        Board b = new Board();
+        for (int move : new int[] {4, 0, 8, 2, 1, 7, 6, 3, 5}) {
+            b.play(move);
+        }
+        assertEquals(Mark.DRAW, b.getWinner());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(bytes, 3, 3, 3);
+        writer.write(b);
+        writer.close();
+        assertEquals(12 + 4, bytes.size());
+    }
+
+    @Test
+    public void rejectsInvalidInput() throws IOException
+    {
+        GameRecordWriter writer = new GameRecordWriter(new ByteArrayOutputStream(), 3, 3, 3);
+        try {
+            writer.write(new Board(4, 4, 3));
+            fail("wrote a board of another shape");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            new GameRecordReader(new ByteArrayInputStream(new byte[12]));
+            fail("read a stream without the magic number");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Returns a game of random moves on a board of the specified shape,
+     * played until it is over or, if it is to be unfinished, for a random
+     * number of moves.
+     */
+    private static Board randomGame(Random random, int[] shape, boolean unfinished)
+    {
+        Board b = new Board(shape[0], shape[1], shape[2]);
+        int[] moves = new int[b.getSize()];
+        int length = unfinished ? random.nextInt(b.getSize()) : b.getSize();
+        while (b.getTurn() < length && b.getWinner() == Mark.NONE) {
+            int numMoves = b.getLegalMoves(moves);
+            b.makeMove(moves[random.nextInt(numMoves)]);
+        }
+
+        return b;
+    }
+}
@@ -0,0 +1,71 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks that a parallel {@link MctsPlayer} only plays legal moves and plays
+ * 3x3 well enough never to lose to a full-depth {@link AlphaBetaPlayer}.
+ *
+ * @author Todd Taomae
+ */
+public class MctsPlayerTest
+{
+    @Test
+    public void playsOnlyLegalMoves()
+    {
+        int[][] shapes = { {3, 3, 3}, {4, 4, 3}, {5, 5, 4} };
+        Random random = new Random(0);
+        MctsPlayer player = new MctsPlayer(500);
+        player.setParallelism(4);
+        try {
+            for (int[] shape : shapes) {
+                for (int game = 0; game < 10; game++) {
+                    // alternate the player's moves with random ones, so that
+                    // the tree is reused between moves of the same game
+                    Board b = new Board(shape[0], shape[1], shape[2]);
+                    int[] moves = new int[b.getSize()];
+                    while (b.getWinner() == Mark.NONE) {
+                        int move;
+                        if ((b.getTurn() + game) % 2 == 0) {
+                            move = player.getMove(b);
+                            assertTrue(move >= 0 && move < b.getSize(), "move " + move);
+                            assertEquals(Mark.NONE, b.markAt(move), "move " + move + " of\n" + b);
+                        } else {
+                            move = moves[random.nextInt(b.getLegalMoves(moves))];
+                        }
+                        b.makeMove(move);
+                    }
+                    assertEquals(Board.INVALID_MOVE, player.getMove(b));
+                }
+            }
+        } finally {
+            player.setParallelism(1);
+        }
+    }
+
+    @Test
+    public void neverLosesToAlphaBetaOn3x3()
+    {
+        MctsPlayer mcts = new MctsPlayer(20000);
+        mcts.setParallelism(4);
+        AlphaBetaPlayer alphaBeta = new AlphaBetaPlayer(9);
+        alphaBeta.setRandom(new Random(0));
+        try {
+            for (int game = 0; game < 10; game++) {
+                Mark mctsMark = game % 2 == 0 ? Mark.X : Mark.O;
+                Board b = new Board();
+                while (b.getWinner() == Mark.NONE) {
+                    Player p = b.getCurrentPlayer() == mctsMark ? mcts : alphaBeta;
+                    b.makeMove(p.getMove(b));
+                }
+                assertNotEquals(mctsMark.opposite(), b.getWinner(), "MCTS as " + mctsMark + " lost\n" + b);
+            }
+        } finally {
+            mcts.setParallelism(1);
+        }
+    }
+}
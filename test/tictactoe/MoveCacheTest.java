@@ -0,0 +1,114 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks that {@link MoveCache} entries are keyed by position, shape, depth
+ * and evaluator, and that a hit for a symmetric position gives the values of
+ * its own moves.
+ *
+ * @author Todd Taomae
+ */
+public class MoveCacheTest
+{
+    @Test
+    public void keyedByDepthShapeAndEvaluator() throws IllegalMoveException
+    {
+        MoveCache cache = new MoveCache(64);
+        Evaluator evaluator = new LinePotentialEvaluator();
+        Board b = new Board(4, 4, 3);
+        b.play(5);
+        int[] values = new int[b.getSize()];
+        Arrays.fill(values, 7);
+        values[5] = Integer.MIN_VALUE;
+
+        cache.put(b, 4, evaluator, values);
+        assertArrayEquals(values, cache.get(b, 4, evaluator));
+        assertNull(cache.get(b, 5, evaluator));
+        assertNull(cache.get(b, 4, null));
+        // an evaluator of the same class may have other settings
+        assertNull(cache.get(b, 4, new LinePotentialEvaluator()));
+
+        // empty boards of every shape have the same hash
+        cache.put(new Board(3, 3, 3), 4, evaluator, new int[9]);
+        assertNull(cache.get(new Board(3, 3, 2), 4, evaluator));
+        assertNull(cache.get(new Board(4, 4, 3), 4, evaluator));
+        assertNotNull(cache.get(new Board(3, 3, 3), 4, evaluator));
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(5, cache.getMisses());
+    }
+
+    @Test
+    public void symmetricPositionsShareEntries() throws IllegalMoveException
+    {
+        Board b = new Board(4, 4, 3);
+        b.play(1);
+        b.play(5);
+        // the mirror image of b
+        Board mirror = new Board(4, 4, 3);
+        mirror.play(2);
+        mirror.play(6);
+        assertEquals(b.getCanonicalHash(), mirror.getCanonicalHash());
+
+        Evaluator evaluator = new LinePotentialEvaluator();
+        int[] values = search(b, evaluator);
+        MoveCache cache = new MoveCache(64);
+        cache.put(b, 4, evaluator, values);
+
+        assertArrayEquals(search(mirror, evaluator), cache.get(mirror, 4, evaluator));
+    }
+
+    @Test
+    public void playerReadsItsOwnEntries() throws IllegalMoveException
+    {
+        MoveCache cache = new MoveCache(64);
+        Evaluator evaluator = new LinePotentialEvaluator();
+        Board b = new Board(4, 4, 3);
+        b.play(5);
+
+        AlphaBetaPlayer first = new AlphaBetaPlayer(4, 1);
+        first.setMoveCache(cache);
+        first.setEvaluator(evaluator);
+        SearchResult searched = first.analyze(b);
+        assertFalse(searched.isCached());
+
+        // a player with the same evaluator reads the entry
+        AlphaBetaPlayer second = new AlphaBetaPlayer(4, 1);
+        second.setMoveCache(cache);
+        second.setEvaluator(evaluator);
+        SearchResult cached = second.analyze(b);
+        assertTrue(cached.isCached());
+        for (int move = 0; move < b.getSize(); move++) {
+            assertEquals(searched.getValue(move), cached.getValue(move));
+        }
+
+        // one with its own evaluator searches again
+        AlphaBetaPlayer third = new AlphaBetaPlayer(4, 1);
+        third.setMoveCache(cache);
+        assertFalse(third.analyze(b).isCached());
+    }
+
+    /**
+     * Returns the value of every move of the specified board searched to
+     * depth 4 with the specified evaluator.
+     */
+    private static int[] search(Board b, Evaluator evaluator)
+    {
+        AlphaBetaPlayer player = new AlphaBetaPlayer(4, 1);
+        player.setEvaluator(evaluator);
+        SearchResult result = player.analyze(b);
+
+        int[] values = new int[b.getSize()];
+        for (int move = 0; move < values.length; move++) {
+            values[move] = result.getValue(move);
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,131 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Checks that {@link PonderingPlayer} answers a predicted reply from its
+ * background search, skips a background search which has not started, and
+ * cancels one which is searching something else.
+ *
+ * @author Todd Taomae
+ */
+public class PonderingPlayerTest
+{
+    /**
+     * An executor which only runs its tasks when told to.
+     */
+    private static final class QueueExecutor implements Executor
+    {
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        public void execute(Runnable task)
+        {
+            this.tasks.add(task);
+        }
+
+        Runnable next()
+        {
+            return this.tasks.remove();
+        }
+    }
+
+    @Test
+    public void answersPredictedReply() throws IllegalMoveException
+    {
+        QueueExecutor executor = new QueueExecutor();
+        PonderingPlayer player = new PonderingPlayer(new AlphaBetaPlayer(9), executor);
+        // search every reply, so that any reply is a hit
+        player.setMaxReplies(9);
+
+        Board b = new Board();
+        b.play(4);
+        int move = player.getMove(b);
+        b.play(move);
+        executor.next().run();
+
+        Board reply = (Board)b.clone();
+        int[] moves = new int[reply.getSize()];
+        reply.getLegalMoves(moves);
+        reply.play(moves[0]);
+
+        int answer = player.getMove(reply);
+        assertEquals(1, player.getPonderHits());
+        assertEquals(0, player.getPonderMisses());
+
+        // the answer is as good as that of a new search
+        SearchResult expected = new AlphaBetaPlayer(9).analyze(reply);
+        assertEquals(expected.getValue(), expected.getValue(answer));
+        player.stopPondering();
+    }
+
+    @Test
+    public void skipsSearchWhichHasNotStarted() throws IllegalMoveException
+    {
+        QueueExecutor executor = new QueueExecutor();
+        PonderingPlayer player = new PonderingPlayer(new AlphaBetaPlayer(9), executor);
+
+        Board b = new Board();
+        b.play(4);
+        b.play(player.getMove(b));
+        Runnable queued = executor.next();
+
+        // the opponent moves before a thread is free for the background search
+        int[] moves = new int[b.getSize()];
+        b.getLegalMoves(moves);
+        b.play(moves[0]);
+        int move = player.getMove(b);
+        assertEquals(Mark.NONE, b.markAt(move));
+        assertEquals(0, player.getPonderHits());
+        assertEquals(1, player.getPonderMisses());
+
+        // the cancelled search does nothing once a thread is free
+        assertTrue(((Future<?>)queued).isCancelled());
+        queued.run();
+        player.stopPondering();
+    }
+
+    @Test
+    public void cancelsSearchInProgress() throws Exception
+    {
+        QueueExecutor executor = new QueueExecutor();
+        final AlphaBetaPlayer engine = new AlphaBetaPlayer(16, 16);
+        final PonderingPlayer player = new PonderingPlayer(engine, executor);
+
+        // a quick first move, then a background search of 5x5 to depth 16,
+        // which would take far longer than the timeout
+        Board b = new Board(5, 5, 4);
+        b.play(12);
+        engine.setTimeLimit(100);
+        b.play(player.getMove(b));
+        engine.setTimeLimit(0);
+
+        Thread background = new Thread(executor.next(), "ponder");
+        background.start();
+        Thread.sleep(100);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), new Executable() {
+            public void execute() {
+                player.stopPondering();
+            }
+        });
+        background.join(10000);
+        assertFalse(background.isAlive());
+        assertEquals(0, player.getPonderHits());
+
+        // the engine can still search once the background search is cancelled
+        engine.setTimeLimit(100);
+        int[] moves = new int[b.getSize()];
+        b.getLegalMoves(moves);
+        b.play(moves[0]);
+        int move = player.getMove(b);
+        assertEquals(Mark.NONE, b.markAt(move));
+        player.stopPondering();
+    }
+}
@@ -0,0 +1,99 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks that {@link PositionIndex} numbers exactly the positions reached by
+ * playing out every game, and that rank and unrank are inverses.
+ *
+ * @author Todd Taomae
+ */
+public class PositionIndexTest
+{
+    @Test
+    public void countsReachablePositions()
+    {
+        assertEquals(5478, new PositionIndex(3, 3, 3).size());
+
+        int[][] shapes = { {3, 3, 3}, {3, 4, 3}, {2, 3, 2} };
+        for (int[] shape : shapes) {
+            PositionIndex index = new PositionIndex(shape[0], shape[1], shape[2]);
+            Set<Integer> reached = new HashSet<Integer>();
+            playOut(new Board(shape[0], shape[1], shape[2]), reached);
+
+            assertEquals(reached.size(), index.size());
+            for (int code : reached) {
+                assertTrue(index.rank(code) >= 0, Integer.toHexString(code));
+            }
+        }
+    }
+
+    @Test
+    public void rankAndUnrankAreInverses()
+    {
+        PositionIndex index = new PositionIndex(3, 4, 3);
+        long previous = -1;
+        for (int i = 0; i < index.size(); i++) {
+            int code = index.unrank(i);
+            assertEquals(i, index.rank(code));
+
+            Board b = index.toBoard(i);
+            assertEquals(code, b.encode());
+            assertEquals(i, index.rank(b));
+
+            // in increasing order of the encoding as an unsigned number
+            long unsigned = code & 0xFFFFFFFFL;
+            assertTrue(unsigned > previous);
+            previous = unsigned;
+        }
+
+        try {
+            index.unrank(index.size());
+            fail("unranked an index past the end");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void unreachablePositionsHaveNoRank()
+    {
+        PositionIndex index = new PositionIndex(3, 3, 3);
+        // three marks of X and none of O
+        assertEquals(-1, index.rank(0x7));
+        // O moved after X completed the top row
+        assertEquals(-1, index.rank(0x7 | (0x38 << 16)));
+        // X and O in the same space
+        assertEquals(-1, index.rank(0x1 | (0x1 << 16)));
+
+        try {
+            index.rank(new Board(4, 4, 3));
+            fail("ranked a board of another shape");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Adds the encoding of the specified board and of every position which can
+     * follow it to the specified set.
+     */
+    private static void playOut(Board b, Set<Integer> reached)
+    {
+        if (!reached.add(b.encode()) || b.getWinner() != Mark.NONE) {
+            return;
+        }
+
+        int[] moves = new int[b.getSize()];
+        int numMoves = b.getLegalMoves(moves);
+        for (int i = 0; i < numMoves; i++) {
+            b.makeMove(moves[i]);
+            playOut(b, reached);
+            b.undo();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the values of {@link RetrogradeSolver} against the tablebase and a
+ * full-depth search, and checks that an interrupted solve stops its workers
+ * and can be resumed.
+ *
+ * @author Todd Taomae
+ */
+public class RetrogradeSolverTest
+{
+    @TempDir
+    File dir;
+
+    @Test
+    public void matchesTablebaseOn3x3() throws Exception
+    {
+        RetrogradeSolver solver = new RetrogradeSolver(3, 3, 3, new File(this.dir, "3x3.rs"));
+        solver.solve();
+
+        File tablebase = new File(this.dir, "3x3.tb");
+        new TablebaseBuilder().write(tablebase.getPath());
+        TablebasePlayer expected = new TablebasePlayer(tablebase.getPath());
+
+        PositionIndex index = new PositionIndex(3, 3, 3);
+        assertEquals(index.size(), solver.getSolvedCount());
+        for (int i = 0; i < index.size(); i++) {
+            Board b = index.toBoard(i);
+            assertEquals(expected.getValue(b), solver.getValue(b), b.toString());
+        }
+    }
+
+    @Test
+    public void matchesSearchOn3x4() throws Exception
+    {
+        RetrogradeSolver solver = new RetrogradeSolver(3, 4, 3, new File(this.dir, "3x4.rs"));
+        solver.solve();
+
+        PositionIndex index = new PositionIndex(3, 4, 3);
+        AlphaBetaPlayer player = new AlphaBetaPlayer(12, 16);
+        // a sample of the positions, at every number of marks
+        for (int i = 0; i < index.size(); i += 97) {
+            Board b = index.toBoard(i);
+            if (b.getWinner() != Mark.NONE) {
+                continue;
+            }
+            assertEquals(searchValue(player, b), solver.getValue(b), b.toString());
+        }
+    }
+
+    @Test
+    public void resumesAfterInterruption() throws Exception
+    {
+        File complete = new File(this.dir, "complete.rs");
+        new RetrogradeSolver(3, 4, 3, complete).solve();
+
+        File partial = new File(this.dir, "partial.rs");
+        RetrogradeSolver first = new RetrogradeSolver(3, 4, 3, partial);
+        first.solve(6);
+        long solvedFirst = first.getSolvedCount();
+
+        // an interrupted call stops before the next layer is written
+        Thread.currentThread().interrupt();
+        try {
+            new RetrogradeSolver(3, 4, 3, partial).solve();
+            fail("solve() was not interrupted");
+        } catch (InterruptedException e) {
+            // expected
+        }
+        assertFalse(Thread.interrupted());
+
+        RetrogradeSolver second = new RetrogradeSolver(3, 4, 3, partial);
+        second.solve();
+        assertEquals(second.getPositionCount(), solvedFirst + second.getSolvedCount());
+        assertArrayEquals(Files.readAllBytes(complete.toPath()), Files.readAllBytes(partial.toPath()));
+    }
+
+    @Test
+    public void stopsWorkersWhenInterrupted() throws Exception
+    {
+        // the layers of 4x4 are large enough that the workers are still
+        // running when the calling thread is interrupted
+        final File file = new File(this.dir, "4x4.rs");
+        final RetrogradeSolver solver = new RetrogradeSolver(4, 4, 3, file);
+        solver.setThreads(4);
+
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            file.delete();
+            Thread caller = new Thread() {
+                public void run() {
+                    try {
+                        solver.solve();
+                    } catch (Exception e) {
+                        // interrupted
+                    }
+                }
+            };
+            caller.start();
+            Thread.sleep(attempt * 40);
+            caller.interrupt();
+            caller.join();
+
+            for (Thread t : Thread.getAllStackTraces().keySet()) {
+                assertFalse(t.getName().startsWith("retrograde-") && t.isAlive(),
+                            t.getName() + " is still running");
+            }
+        }
+
+        // the last attempt can still be resumed; X wins 4x4 with three in a row
+        solver.solve();
+        assertEquals(TablebasePlayer.WIN, solver.getValue(new Board(4, 4, 3)));
+    }
+
+    /**
+     * Returns the value of the specified board for the player to move from
+     * a search to the end of the game.
+     */
+    private static int searchValue(AlphaBetaPlayer player, Board b)
+    {
+        int value = player.analyze(b).getValue();
+        if (value > Evaluator.MAX_VALUE) {
+            return TablebasePlayer.WIN;
+        } else if (value < -Evaluator.MAX_VALUE) {
+            return TablebasePlayer.LOSS;
+        }
+        return TablebasePlayer.DRAW;
+    }
+}
@@ -0,0 +1,90 @@
+package tictactoe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks that {@link TranspositionTable} entries hold the stored fields and
+ * that the replacement policy keeps deeper entries of the current search.
+ *
+ * @author Todd Taomae
+ */
+public class TranspositionTableTest
+{
+    @Test
+    public void probeReturnsStoredFields()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789ABCDEFL;
+        assertEquals(0L, table.probe(key));
+
+        table.store(key, -12345, 7, TranspositionTable.LOWER_BOUND, 42);
+        long entry = table.probe(key);
+        assertNotEquals(0L, entry);
+        assertEquals(-12345, TranspositionTable.valueOf(entry));
+        assertEquals(7, TranspositionTable.depthOf(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.flagOf(entry));
+        assertEquals(42, TranspositionTable.moveOf(entry));
+
+        // the same slot with another key is a miss
+        assertEquals(0L, table.probe(key ^ (1L << 40)));
+
+        table.clear();
+        assertEquals(0L, table.probe(key));
+    }
+
+    @Test
+    public void moveFieldHoldsEveryMove()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        int[] moves = { Board.INVALID_MOVE, 0, 1, Geometry.MAX_SIZE - 1 };
+        for (int i = 0; i < moves.length; i++) {
+            long key = 1000L + i;
+            table.store(key, Evaluator.MAX_VALUE, 255, TranspositionTable.EXACT, moves[i]);
+            long entry = table.probe(key);
+            assertEquals(moves[i], TranspositionTable.moveOf(entry));
+            assertEquals(Evaluator.MAX_VALUE, TranspositionTable.valueOf(entry));
+            assertEquals(255, TranspositionTable.depthOf(entry));
+            assertEquals(TranspositionTable.EXACT, TranspositionTable.flagOf(entry));
+        }
+    }
+
+    @Test
+    public void keepsDeeperEntryOfCurrentSearch()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        long deep = 5L;
+        long shallow = deep + table.getCapacity();
+
+        table.store(deep, 1, 8, TranspositionTable.EXACT, 3);
+        table.store(shallow, 2, 4, TranspositionTable.EXACT, 4);
+        assertNotEquals(0L, table.probe(deep));
+        assertEquals(0L, table.probe(shallow));
+
+        // an entry from an earlier search is replaced regardless of depth
+        table.newSearch();
+        table.store(shallow, 2, 4, TranspositionTable.EXACT, 4);
+        assertEquals(0L, table.probe(deep));
+        assertEquals(2, TranspositionTable.valueOf(table.probe(shallow)));
+
+        // the same position is always replaced
+        table.store(shallow, 3, 1, TranspositionTable.UPPER_BOUND, 5);
+        assertEquals(3, TranspositionTable.valueOf(table.probe(shallow)));
+    }
+
+    @Test
+    public void countsSearchStatistics()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        AlphaBetaPlayer player = new AlphaBetaPlayer(6, table);
+        SearchResult result = player.analyze(new Board(4, 4, 3));
+
+        assertTrue(table.getStores() > 0);
+        assertEquals(result.getTableProbes(), table.getHits() + table.getMisses());
+        assertEquals(result.getTableHits(), table.getHits());
+
+        table.clear();
+        assertEquals(0L, table.getHits() + table.getMisses() + table.getStores());
+    }
+}
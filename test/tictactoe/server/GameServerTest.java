@@ -0,0 +1,97 @@
+package tictactoe.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Plays games against a {@link GameServer} over a loopback connection and
+ * checks the replies to commands which are not valid.
+ *
+ * @author Todd Taomae
+ */
+public class GameServerTest
+{
+    private GameServer server;
+    private Thread thread;
+    private Socket socket;
+    private BufferedReader in;
+    private PrintWriter out;
+
+    @BeforeEach
+    public void startServer() throws IOException
+    {
+        this.server = new GameServer(0, 4, 10000, 2);
+        this.thread = new Thread(this.server, "server");
+        this.thread.start();
+
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), this.server.getPort());
+        this.socket.setSoTimeout(10000);
+        this.in = new BufferedReader(new InputStreamReader(this.socket.getInputStream(),
+                                                           StandardCharsets.US_ASCII));
+        this.out = new PrintWriter(new OutputStreamWriter(this.socket.getOutputStream(),
+                                                          StandardCharsets.US_ASCII), true);
+    }
+
+    @AfterEach
+    public void stopServer() throws Exception
+    {
+        this.socket.close();
+        this.server.stop();
+        this.thread.join(10000);
+        assertFalse(this.thread.isAlive());
+    }
+
+    @Test
+    public void playsGameToEnd() throws IOException
+    {
+        assertEquals("GAME X 3 3 3", this.command("NEW"));
+        String line = this.in.readLine();
+        assertEquals("TURN _________", line);
+
+        // play the first empty space until the game is over
+        while (line.startsWith("TURN ")) {
+            this.out.println("MOVE " + (line.indexOf('_') - 5));
+            line = this.in.readLine();
+        }
+
+        assertTrue(line.matches("END (X|O|DRAW) [XO_]{9}"), line);
+        assertFalse(line.startsWith("END X"), "the server lost to the first empty space: " + line);
+
+        // another game can be started once the first is over
+        assertEquals("GAME O 3 4 3", this.command("NEW O 3 4 3"));
+        assertTrue(this.in.readLine().matches("TURN [XO_]{12}"));
+        assertEquals("ERR game in progress", this.command("NEW"));
+    }
+
+    @Test
+    public void rejectsInvalidCommands() throws IOException
+    {
+        assertEquals("ERR not your turn", this.command("MOVE 0"));
+        assertEquals("ERR board must have between 1 and " + GameServer.MAX_SPACES + " spaces",
+                     this.command("NEW 9 9 5"));
+        assertEquals("ERR board must have between 1 and " + GameServer.MAX_SPACES + " spaces",
+                     this.command("NEW 65536 65536 1"));
+        assertEquals("ERR usage: NEW [X|O] [rows cols k]", this.command("NEW X 3 3"));
+        assertEquals("ERR unknown command", this.command("PASS"));
+
+        // the session is still usable
+        assertEquals("GAME X 3 3 3", this.command("NEW"));
+        assertEquals("TURN _________", this.in.readLine());
+        assertEquals("ERR illegal move", this.command("MOVE 9"));
+        assertEquals("ERR usage: MOVE n", this.command("MOVE x"));
+    }
+
+    /**
+     * Sends the specified command and returns the first line of the reply.
+     */
+    private String command(String command) throws IOException
+    {
+        this.out.println(command);
+        return this.in.readLine();
+    }
+}